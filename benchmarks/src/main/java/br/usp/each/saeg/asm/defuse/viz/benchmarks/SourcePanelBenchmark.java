@@ -0,0 +1,100 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.benchmarks;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.text.BadLocationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import br.usp.each.saeg.asm.defuse.viz.swing.SourcePanel;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SourcePanelBenchmark {
+
+    @Param({ "1000", "50000" })
+    public int lines;
+
+    @Param({ "1000" })
+    public int highlights;
+
+    private SourcePanel panel;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        panel = new SourcePanel();
+        text = SyntheticClasses.source(lines);
+        panel.setText(text);
+    }
+
+    @Benchmark
+    public SourcePanel setText() {
+        panel.setText(text);
+        return panel;
+    }
+
+    @Benchmark
+    public SourcePanel highlightLines() throws BadLocationException {
+        panel.clearHighlights();
+        final int step = Math.max(1, lines / highlights);
+        for (int line = 1; line <= lines; line += step) {
+            panel.highlightLine(line, SourcePanel.ORANGE);
+        }
+        return panel;
+    }
+
+    @Benchmark
+    public SourcePanel highlightLinesBatch() {
+        panel.clearHighlights();
+        final Map<Integer, Color> batch = new HashMap<Integer, Color>();
+        final int step = Math.max(1, lines / highlights);
+        for (int line = 1; line <= lines; line += step) {
+            batch.put(line, SourcePanel.ORANGE);
+        }
+        panel.highlightLines(batch);
+        return panel;
+    }
+
+}
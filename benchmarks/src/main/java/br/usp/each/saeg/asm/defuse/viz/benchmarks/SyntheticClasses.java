@@ -0,0 +1,143 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+public class SyntheticClasses implements Opcodes {
+
+    private static final int CLASSES_PER_PACKAGE = 50;
+
+    public static byte[] generate(final String name, final int methods, final int statements) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_5, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+        cw.visitSource(name.substring(name.lastIndexOf('/') + 1) + ".java", null);
+        cw.visitField(ACC_PRIVATE, "field", "I", null, null).visitEnd();
+
+        int line = 1;
+        for (int i = 0; i < methods; i++) {
+            final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "m" + i, "(I)I", null, null);
+            mv.visitCode();
+            final Label start = new Label();
+            final Label end = new Label();
+            mv.visitLabel(start);
+
+            // x = a; then x, y and the field are redefined and used on every line
+            mv.visitLineNumber(line++, start);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ISTORE, 2);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, 3);
+            for (int j = 0; j < statements; j++) {
+                final Label l = new Label();
+                final Label skip = new Label();
+                mv.visitLabel(l);
+                mv.visitLineNumber(line++, l);
+                mv.visitVarInsn(ILOAD, 2);
+                mv.visitJumpInsn(IFLT, skip);
+                mv.visitVarInsn(ILOAD, 2);
+                mv.visitVarInsn(ILOAD, 3);
+                mv.visitInsn(IADD);
+                mv.visitVarInsn(ISTORE, 3);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ILOAD, 3);
+                mv.visitFieldInsn(PUTFIELD, name, "field", "I");
+                mv.visitLabel(skip);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, name, "field", "I");
+                mv.visitVarInsn(ISTORE, 2);
+            }
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitInsn(IRETURN);
+            mv.visitLabel(end);
+            mv.visitLocalVariable("this", "L" + name + ";", null, start, end, 0);
+            mv.visitLocalVariable("a", "I", null, start, end, 1);
+            mv.visitLocalVariable("x", "I", null, start, end, 2);
+            mv.visitLocalVariable("y", "I", null, start, end, 3);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public static String source(final int lines) {
+        final StringBuilder sb = new StringBuilder(lines * 40);
+        sb.append("public class Big {\n");
+        for (int i = 1; i < lines - 1; i++) {
+            sb.append("    private int field").append(i).append(" = ").append(i).append(";\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public static Path createClassPath(final int classes, final int methods, final int statements)
+            throws IOException {
+
+        final Path dir = Files.createTempDirectory("asm-defuse-viz-bench");
+        for (int i = 0; i < classes; i++) {
+            final String pkg = "synthetic/p" + (i / CLASSES_PER_PACKAGE);
+            final String name = pkg + "/Class" + i;
+            final Path file = dir.resolve(name + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, generate(name, methods, statements));
+        }
+        return dir;
+    }
+
+    public static void delete(final Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path d, final IOException exc)
+                    throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+}
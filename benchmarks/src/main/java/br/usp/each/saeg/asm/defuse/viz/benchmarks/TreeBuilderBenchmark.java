@@ -0,0 +1,110 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer;
+import br.usp.each.saeg.asm.defuse.viz.Project;
+import br.usp.each.saeg.asm.defuse.viz.TreeBuilder;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatcherChain;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatchers;
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
+import br.usp.each.saeg.asm.defuse.viz.swing.NodeType;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TreeBuilderBenchmark {
+
+    @Param({ "1000" })
+    public int classes;
+
+    @Param({ "10" })
+    public int methods;
+
+    @Param({ "20" })
+    public int statements;
+
+    @Param({ "1", "4" })
+    public int parallelism;
+
+    @Param({ "false", "true" })
+    public boolean lazy;
+
+    private final PathMatcherChain include = new PathMatcherChain(PathMatchers.get("glob:*.class"));
+
+    private Path root;
+
+    private Project project;
+
+    private ClassAnalyzer analyzer;
+
+    @Setup
+    public void setup() throws IOException {
+        root = SyntheticClasses.createClassPath(classes, methods, statements);
+        project = new Project(root, Collections.singletonList(root),
+                Collections.<Path> emptyList());
+        analyzer = new ClassAnalyzer(project, lazy);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        project.close();
+        SyntheticClasses.delete(root);
+    }
+
+    @Benchmark
+    public ExplorerTreeNode build() throws IOException {
+        final ExplorerTreeNode node = new ExplorerTreeNode(root.getFileName(), NodeType.PROJECT);
+        final TreeBuilder visitor = new TreeBuilder(node, project, analyzer, parallelism);
+        try {
+            visitor.walk(root, include, null);
+            visitor.merge();
+        } finally {
+            visitor.shutdown();
+        }
+        return node;
+    }
+
+}
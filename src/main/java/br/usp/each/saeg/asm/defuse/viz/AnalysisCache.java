@@ -0,0 +1,194 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.ClassData;
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.MethodData;
+
+public class AnalysisCache {
+
+    public static final String DIRECTORY = ".asm-defuse-viz";
+
+    private static final int MAGIC = 0x44554143;
+
+    private static final int VERSION = 2;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path dir;
+
+    public AnalysisCache(final Project project) {
+        this(project.getRootPath().resolve(DIRECTORY).resolve("cache"));
+    }
+
+    public AnalysisCache(final Path dir) {
+        this.dir = dir;
+    }
+
+    public String key(final byte[] b) {
+        return key(b, b.length);
+    }
+
+    public String key(final byte[] b, final int len) {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        md.update(b, 0, len);
+        final byte[] digest = md.digest();
+        final char[] key = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            key[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            key[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(key);
+    }
+
+    public ClassData get(final String key) {
+        final Path file = file(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file)))) {
+            return read(in);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            // unreadable or stale entry, will be analyzed (and written) again
+            return null;
+        }
+    }
+
+    public void put(final String key, final ClassData c) {
+        final Path file = file(key);
+        try {
+            Files.createDirectories(file.getParent());
+            final Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(tmp)))) {
+                    write(out, c);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (final IOException ignore) {
+        }
+    }
+
+    private Path file(final String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key.substring(2));
+    }
+
+    private static void write(final DataOutputStream out, final ClassData c) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(ClassAnalyzer.VERSION);
+        out.writeUTF(c.name);
+        out.writeUTF(c.pkg);
+        out.writeBoolean(c.sourceFile != null);
+        if (c.sourceFile != null) {
+            out.writeUTF(c.sourceFile);
+        }
+        out.writeInt(c.methods.size());
+        for (final MethodData m : c.methods) {
+            out.writeInt(m.access);
+            out.writeUTF(m.name);
+            out.writeUTF(m.desc);
+
+            final Chains chains = m.chains;
+            out.writeInt(chains.names());
+            for (int j = 0; j < chains.names(); j++) {
+                out.writeUTF(chains.name(j));
+            }
+            out.writeInt(chains.size());
+            for (int j = 0; j < chains.size(); j++) {
+                out.writeInt(chains.def(j));
+                out.writeInt(chains.use(j));
+                out.writeInt(chains.var(j));
+            }
+        }
+    }
+
+    private static ClassData read(final DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown cache entry format");
+        }
+        if (in.readInt() != ClassAnalyzer.VERSION) {
+            throw new IOException("Cache entry written by another analyzer");
+        }
+        final String name = in.readUTF();
+        final String pkg = in.readUTF();
+        final String sourceFile = in.readBoolean() ? in.readUTF() : null;
+        final int size = in.readInt();
+        final List<MethodData> methods = new ArrayList<MethodData>(size);
+        for (int i = 0; i < size; i++) {
+            final int access = in.readInt();
+            final String mname = in.readUTF();
+            final String desc = in.readUTF();
+
+            final String[] names = new String[in.readInt()];
+            for (int j = 0; j < names.length; j++) {
+                names[j] = in.readUTF();
+            }
+            final int length = in.readInt();
+            final int[] defs = new int[length];
+            final int[] uses = new int[length];
+            final int[] vars = new int[length];
+            for (int j = 0; j < length; j++) {
+                defs[j] = in.readInt();
+                uses[j] = in.readInt();
+                vars[j] = in.readInt();
+                if (vars[j] < 0 || vars[j] >= names.length) {
+                    throw new IOException("Corrupted cache entry");
+                }
+            }
+            methods.add(new MethodData(access, mname, desc, new Chains(defs, uses, vars, names)));
+        }
+        return new ClassData(name, pkg, sourceFile, null, methods);
+    }
+
+}
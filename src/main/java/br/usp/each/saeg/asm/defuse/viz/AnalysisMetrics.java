@@ -0,0 +1,287 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class AnalysisMetrics implements AnalysisMetricsMBean {
+
+    public static final String OBJECT_NAME = "br.usp.each.saeg.asm.defuse.viz:type=AnalysisMetrics";
+
+    private static final AnalysisMetrics INSTANCE = new AnalysisMetrics();
+
+    private static final int SLOWEST = 10;
+
+    public enum Stage {
+
+        WALK, PARSE, ANALYZE, SEARCH, GLOBALS, TREE
+
+    }
+
+    private final AtomicLong[] nanos = new AtomicLong[Stage.values().length];
+
+    private final AtomicLong classes = new AtomicLong();
+
+    private final AtomicLong methods = new AtomicLong();
+
+    private final AtomicLong chains = new AtomicLong();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private final AtomicLong truncated = new AtomicLong();
+
+    // the fastest of the slowest methods on top, anything faster is not kept
+    private final PriorityQueue<Slow> slowest = new PriorityQueue<Slow>();
+
+    private volatile long threshold;
+
+    public AnalysisMetrics() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = new AtomicLong();
+        }
+    }
+
+    public static AnalysisMetrics get() {
+        return INSTANCE;
+    }
+
+    public void register() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (final JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void time(final Stage stage, final long start) {
+        nanos[stage.ordinal()].addAndGet(System.nanoTime() - start);
+    }
+
+    public void add(final Stage stage, final long elapsed) {
+        nanos[stage.ordinal()].addAndGet(elapsed);
+    }
+
+    public void classRead(final long bytes) {
+        classes.incrementAndGet();
+        bytesRead.addAndGet(bytes);
+    }
+
+    public void cacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    public void method(final String owner, final String name, final long elapsed,
+            final int count, final ClassAnalyzer.MethodData.Status status) {
+
+        methods.incrementAndGet();
+        chains.addAndGet(count);
+        if (status == ClassAnalyzer.MethodData.Status.TIMED_OUT) {
+            timedOut.incrementAndGet();
+        } else if (status == ClassAnalyzer.MethodData.Status.TRUNCATED) {
+            truncated.incrementAndGet();
+        }
+        if (elapsed > threshold) {
+            synchronized (slowest) {
+                slowest.add(new Slow(owner + "." + name, elapsed));
+                if (slowest.size() > SLOWEST) {
+                    slowest.remove();
+                    threshold = slowest.peek().nanos;
+                }
+            }
+        }
+    }
+
+    @Override
+    public long getClasses() {
+        return classes.get();
+    }
+
+    @Override
+    public long getMethods() {
+        return methods.get();
+    }
+
+    @Override
+    public long getChains() {
+        return chains.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    @Override
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    @Override
+    public long getTruncated() {
+        return truncated.get();
+    }
+
+    @Override
+    public long getWalkMillis() {
+        return millis(Stage.WALK);
+    }
+
+    @Override
+    public long getParseMillis() {
+        return millis(Stage.PARSE);
+    }
+
+    @Override
+    public long getAnalyzeMillis() {
+        return millis(Stage.ANALYZE);
+    }
+
+    @Override
+    public long getSearchMillis() {
+        return millis(Stage.SEARCH);
+    }
+
+    @Override
+    public long getGlobalsMillis() {
+        return millis(Stage.GLOBALS);
+    }
+
+    @Override
+    public long getTreeMillis() {
+        return millis(Stage.TREE);
+    }
+
+    private long millis(final Stage stage) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos[stage.ordinal()].get());
+    }
+
+    @Override
+    public String[] getSlowestMethods() {
+        final List<Slow> list;
+        synchronized (slowest) {
+            list = new ArrayList<Slow>(slowest);
+        }
+        Collections.sort(list, Collections.reverseOrder());
+        final String[] result = new String[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = String.format("%s %d ms", list.get(i).method,
+                    TimeUnit.NANOSECONDS.toMillis(list.get(i).nanos));
+        }
+        return result;
+    }
+
+    @Override
+    public String getSummary() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("classes: %d (%d bytes), methods: %d, chains: %d%n",
+                getClasses(), getBytesRead(), getMethods(), getChains()));
+        sb.append(String.format("cache hits: %d, misses: %d, timed out: %d, truncated: %d%n",
+                getCacheHits(), getCacheMisses(), getTimedOut(), getTruncated()));
+        for (final Stage stage : Stage.values()) {
+            sb.append(String.format("%-8s %8d ms%n", stage.name().toLowerCase(), millis(stage)));
+        }
+        for (final String method : getSlowestMethods()) {
+            sb.append(String.format("slow: %s%n", method));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (final AtomicLong n : nanos) {
+            n.set(0);
+        }
+        classes.set(0);
+        methods.set(0);
+        chains.set(0);
+        bytesRead.set(0);
+        cacheHits.set(0);
+        cacheMisses.set(0);
+        timedOut.set(0);
+        truncated.set(0);
+        synchronized (slowest) {
+            slowest.clear();
+            threshold = 0;
+        }
+    }
+
+    private static class Slow implements Comparable<Slow> {
+
+        private final String method;
+
+        private final long nanos;
+
+        public Slow(final String method, final long nanos) {
+            this.method = method;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public int compareTo(final Slow o) {
+            return nanos < o.nanos ? -1 : nanos == o.nanos ? 0 : 1;
+        }
+
+    }
+
+}
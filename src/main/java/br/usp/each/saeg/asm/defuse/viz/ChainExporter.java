@@ -0,0 +1,146 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.ClassData;
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.MethodData;
+import br.usp.each.saeg.asm.defuse.viz.commons.ParallelWalker;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathFilter;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatcherChain;
+import br.usp.each.saeg.asm.defuse.viz.commons.ReadBuffer;
+
+public class ChainExporter implements ParallelWalker.Visitor {
+
+    private final Deque<Future<ClassData>> pending = new ArrayDeque<Future<ClassData>>();
+
+    private final Project project;
+
+    private final ClassAnalyzer analyzer;
+
+    private final ChainWriter writer;
+
+    private final ForkJoinPool executor;
+
+    private final int window;
+
+    public ChainExporter(final Project project, final ClassAnalyzer analyzer,
+            final int parallelism, final ChainWriter writer) {
+        this.project = project;
+        this.analyzer = analyzer;
+        this.writer = writer;
+        executor = new ForkJoinPool(parallelism);
+        // results are written in walk order, never more than this many are kept
+        window = parallelism * 4;
+    }
+
+    public void walk(final Path classPath, final PathMatcherChain include,
+            final PathFilter filter) throws IOException {
+
+        // files are submitted in walk order as soon as their directory is listed
+        new ParallelWalker(executor, include, filter).walk(project.getClassRoot(classPath), null,
+                this);
+    }
+
+    @Override
+    public void preVisitDirectory(final Path dir) {
+    }
+
+    @Override
+    public void visitFile(final Path file) throws IOException {
+
+        pending.add(executor.submit(new Callable<ClassData>() {
+            @Override
+            public ClassData call() throws IOException {
+                final ReadBuffer buffer = ReadBuffer.get().read(file);
+                return analyzer.analyze(buffer.array(), buffer.length());
+            }
+        }));
+        while (pending.size() > window) {
+            write(get(pending.remove()));
+        }
+    }
+
+    @Override
+    public void postVisitDirectory(final Path dir) {
+    }
+
+    public void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            write(get(pending.remove()));
+        }
+        writer.flush();
+    }
+
+    private void write(final ClassData c) throws IOException {
+        writer.write(c);
+        for (final MethodData method : c.methods) {
+            if (method.status != MethodData.Status.COMPLETE) {
+                System.err.println(String.format("%s.%s%s: %s", c.name, method.name,
+                        method.desc, method.status));
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ClassData get(final Future<ClassData> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.usp.each.saeg.asm.defuse.DefUseChain;
+import br.usp.each.saeg.asm.defuse.DefUseFrame;
+import br.usp.each.saeg.asm.defuse.Variable;
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.MethodData.Status;
+
+// The depth-first search of asm-defuse, walked with an explicit stack so it can stop on its
+// own thread once the budget is spent and hand back the chains found until then.
+public class ChainSearch {
+
+    // steps between two looks at the clock
+    private static final int CLOCK_INTERVAL = 1024;
+
+    private final AnalysisBudget budget;
+
+    private int[] stack = new int[64];
+
+    private int[] visited = new int[0];
+
+    private int mark;
+
+    private Status status;
+
+    public ChainSearch(final AnalysisBudget budget) {
+        this.budget = budget;
+    }
+
+    public DefUseChain[] search(final DefUseFrame[] frames, final Variable[] variables,
+            final int[][] successors, final long started) {
+
+        status = Status.COMPLETE;
+        final long deadline = budget.timeout > 0 ? started + budget.timeout * 1000000L : 0;
+        final Map<Variable, Integer> indexes = new HashMap<Variable, Integer>(
+                variables.length * 2);
+        for (int i = 0; i < variables.length; i++) {
+            indexes.put(variables[i], i);
+        }
+        if (visited.length < frames.length) {
+            visited = new int[frames.length];
+            mark = 0;
+        }
+
+        final List<DefUseChain> chains = new ArrayList<DefUseChain>();
+        int steps = 0;
+        for (int insn = 0; insn < frames.length; insn++) {
+            if (frames[insn] == null) {
+                continue;
+            }
+            for (final Variable variable : frames[insn].getDefinitions()) {
+                final int var = indexes.get(variable);
+                // a fresh mark instead of clearing visited for every definition
+                if (++mark == 0) {
+                    Arrays.fill(visited, 0);
+                    mark = 1;
+                }
+                int top = 0;
+                for (int k = successors[insn].length - 1; k >= 0; k--) {
+                    top = push(top, successors[insn][k]);
+                }
+                while (top > 0) {
+                    final int node = stack[--top];
+                    if (visited[node] == mark || frames[node] == null) {
+                        continue;
+                    }
+                    visited[node] = mark;
+                    if (frames[node].getUses().contains(variable)) {
+                        // a use that branches makes one chain for each way out of it
+                        final int n = successors[node].length > 1 ? successors[node].length : 1;
+                        if (budget.chains > 0 && chains.size() + n > budget.chains) {
+                            status = Status.TRUNCATED;
+                            return chains.toArray(new DefUseChain[chains.size()]);
+                        }
+                        if (n > 1) {
+                            for (final int target : successors[node]) {
+                                chains.add(new DefUseChain(insn, node, target, var));
+                            }
+                        } else {
+                            chains.add(new DefUseChain(insn, node, var));
+                        }
+                    }
+                    if (!frames[node].getDefinitions().contains(variable)) {
+                        // pushed in reverse, so successors are explored in their order
+                        for (int k = successors[node].length - 1; k >= 0; k--) {
+                            top = push(top, successors[node][k]);
+                        }
+                    }
+                    if (budget.timeout > 0 && ++steps % CLOCK_INTERVAL == 0
+                            && System.nanoTime() - deadline > 0) {
+                        status = Status.TIMED_OUT;
+                        return chains.toArray(new DefUseChain[chains.size()]);
+                    }
+                }
+            }
+        }
+        return chains.toArray(new DefUseChain[chains.size()]);
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    private int push(final int top, final int node) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.ClassData;
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.MethodData;
+
+public abstract class ChainWriter {
+
+    protected final Writer out;
+
+    protected ChainWriter(final Writer out) {
+        this.out = out;
+    }
+
+    public static boolean isFormat(final String format) {
+        return "csv".equals(format) || "jsonl".equals(format);
+    }
+
+    public static ChainWriter create(final String format, final Writer out) throws IOException {
+        switch (format) {
+        case "csv":
+            return new CsvChainWriter(out);
+        case "jsonl":
+            return new JsonChainWriter(out);
+        default:
+            throw new IllegalArgumentException(String.format("Unknown format '%s'", format));
+        }
+    }
+
+    public void write(final ClassData c) throws IOException {
+        final String className = c.pkg.isEmpty() ? c.name : c.pkg.replace('/', '.') + '.'
+                + c.name;
+        for (final MethodData m : c.methods) {
+            final String method = m.name + m.desc;
+            final Chains chains = m.chains;
+            for (int i = 0; i < chains.size(); i++) {
+                write(className, method, chains.def(i), chains.use(i),
+                        chains.name(chains.var(i)));
+            }
+        }
+    }
+
+    protected abstract void write(String className, String method, int def, int use, String var)
+            throws IOException;
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private static class CsvChainWriter extends ChainWriter {
+
+        public CsvChainWriter(final Writer out) throws IOException {
+            super(out);
+            out.write("class,method,def,use,var\n");
+        }
+
+        @Override
+        protected void write(final String className, final String method, final int def,
+                final int use, final String var) throws IOException {
+            field(className);
+            out.write(',');
+            field(method);
+            out.write(',');
+            out.write(Integer.toString(def));
+            out.write(',');
+            out.write(Integer.toString(use));
+            out.write(',');
+            field(var);
+            out.write('\n');
+        }
+
+        private void field(final String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                final char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+    }
+
+    private static class JsonChainWriter extends ChainWriter {
+
+        public JsonChainWriter(final Writer out) {
+            super(out);
+        }
+
+        @Override
+        protected void write(final String className, final String method, final int def,
+                final int use, final String var) throws IOException {
+            out.write("{\"class\":");
+            string(className);
+            out.write(",\"method\":");
+            string(method);
+            out.write(",\"def\":");
+            out.write(Integer.toString(def));
+            out.write(",\"use\":");
+            out.write(Integer.toString(use));
+            out.write(",\"var\":");
+            string(var);
+            out.write("}\n");
+        }
+
+        private void string(final String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+            out.write('"');
+        }
+
+    }
+
+}
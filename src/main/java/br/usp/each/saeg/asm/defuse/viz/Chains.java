@@ -0,0 +1,175 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import br.usp.each.saeg.asm.defuse.viz.TreeBuilder.DUA;
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
+import br.usp.each.saeg.asm.defuse.viz.swing.NodeType;
+
+public class Chains implements ExplorerTreeNode.Rows {
+
+    public static final Chains EMPTY = new Chains(new int[0], new int[0], new int[0],
+            new String[0]);
+
+    private final int[] defs;
+
+    private final int[] uses;
+
+    private final int[] vars;
+
+    private final String[] names;
+
+    private LineDensity density;
+
+    public Chains(final int[] defs, final int[] uses, final int[] vars, final String[] names) {
+        if (defs.length != uses.length || defs.length != vars.length) {
+            throw new IllegalArgumentException("defs, uses and vars should have the same length");
+        }
+        this.defs = defs;
+        this.uses = uses;
+        this.vars = vars;
+        this.names = names;
+    }
+
+    @Override
+    public int size() {
+        return defs.length;
+    }
+
+    @Override
+    public DUA get(final int index) {
+        return new DUA(defs[index], uses[index], names[vars[index]]);
+    }
+
+    @Override
+    public NodeType getType(final int index) {
+        return NodeType.DEFUSE;
+    }
+
+    @Override
+    public ExplorerTreeNode.Rows getRows(final int index) {
+        return null;
+    }
+
+    @Override
+    public boolean isLoaded(final int index) {
+        return true;
+    }
+
+    @Override
+    public Runnable load(final int index) {
+        return null;
+    }
+
+    public int def(final int index) {
+        return defs[index];
+    }
+
+    public int use(final int index) {
+        return uses[index];
+    }
+
+    public int var(final int index) {
+        return vars[index];
+    }
+
+    public String name(final int var) {
+        return names[var];
+    }
+
+    public int names() {
+        return names.length;
+    }
+
+    public LineDensity density() {
+        if (density == null) {
+            density = LineDensity.of(this);
+        }
+        return density;
+    }
+
+    public static class Builder {
+
+        private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+        private int[] defs;
+
+        private int[] uses;
+
+        private int[] vars;
+
+        private String[] names = new String[8];
+
+        private int size;
+
+        public Builder(final int capacity) {
+            defs = new int[capacity];
+            uses = new int[capacity];
+            vars = new int[capacity];
+        }
+
+        public Builder add(final int def, final int use, final String name) {
+            Integer var = index.get(name);
+            if (var == null) {
+                var = index.size();
+                index.put(name, var);
+                if (var == names.length) {
+                    names = Arrays.copyOf(names, names.length * 2);
+                }
+                names[var] = name;
+            }
+            if (size == defs.length) {
+                final int capacity = Math.max(8, size * 2);
+                defs = Arrays.copyOf(defs, capacity);
+                uses = Arrays.copyOf(uses, capacity);
+                vars = Arrays.copyOf(vars, capacity);
+            }
+            defs[size] = def;
+            uses[size] = use;
+            vars[size] = var;
+            size++;
+            return this;
+        }
+
+        public Chains build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new Chains(Arrays.copyOf(defs, size), Arrays.copyOf(uses, size),
+                    Arrays.copyOf(vars, size), Arrays.copyOf(names, index.size()));
+        }
+
+    }
+
+}
@@ -0,0 +1,592 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+
+import br.usp.each.saeg.asm.defuse.DefUseAnalyzer;
+import br.usp.each.saeg.asm.defuse.DefUseChain;
+import br.usp.each.saeg.asm.defuse.Field;
+import br.usp.each.saeg.asm.defuse.Local;
+import br.usp.each.saeg.asm.defuse.Variable;
+import br.usp.each.saeg.asm.defuse.viz.AnalysisMetrics.Stage;
+import br.usp.each.saeg.asm.defuse.viz.commons.ReadBuffer;
+
+public class ClassAnalyzer {
+
+    // bump whenever the chains found for the same class bytes change, cached ones go stale
+    static final int VERSION = 6;
+
+    private final Project project;
+
+    private final boolean lazy;
+
+    private final AnalysisCache cache;
+
+    private final AnalysisBudget budget;
+
+    public ClassAnalyzer(final Project project) {
+        this(project, false);
+    }
+
+    public ClassAnalyzer(final Project project, final boolean lazy) {
+        this(project, lazy, null);
+    }
+
+    public ClassAnalyzer(final Project project, final boolean lazy, final AnalysisCache cache) {
+        this(project, lazy, cache, AnalysisBudget.UNLIMITED);
+    }
+
+    public ClassAnalyzer(final Project project, final boolean lazy, final AnalysisCache cache,
+            final AnalysisBudget budget) {
+        this.project = project;
+        this.lazy = lazy;
+        this.cache = cache;
+        this.budget = budget;
+    }
+
+    public ClassData analyze(final byte[] b) {
+        return analyze(b, b.length);
+    }
+
+    public ClassData analyze(final byte[] b, final int len) {
+        final AnalysisMetrics metrics = AnalysisMetrics.get();
+        metrics.classRead(len);
+        String key = null;
+        // lazy results are never cached, do not pay for hashing them
+        if (cache != null && !lazy) {
+            key = cache.key(b, len);
+            if (project.getScope() != AnalysisScope.GLOBAL) {
+                // chains found under another scope are a different result for the same bytes
+                key = key + "-" + project.getScope().name().toLowerCase();
+            }
+            final ClassData c = cache.get(key);
+            if (c != null) {
+                metrics.cacheHit();
+                return new ClassData(c.name, c.pkg, c.sourceFile, source(c.pkg, c.sourceFile),
+                        c.methods);
+            }
+            metrics.cacheMiss();
+        }
+
+        final long start = System.nanoTime();
+        final AnalyzerClassVisitor cv = new AnalyzerClassVisitor(null, null);
+        if (lazy) {
+            // only class and method headers, chains are searched by method on demand
+            new ClassReader(b, 0, len).accept(cv, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        } else {
+            new ClassReader(b, 0, len).accept(cv, ClassReader.SKIP_FRAMES);
+            // degraded results depend on the budget and the machine, they are not kept
+            if (cache != null && cv.isComplete()) {
+                cache.put(key, cv.result);
+            }
+        }
+        metrics.add(Stage.PARSE, System.nanoTime() - start - cv.analysis);
+        return cv.result;
+    }
+
+    public MethodData analyze(final byte[] b, final String name, final String desc) {
+        return analyze(b, b.length, name, desc);
+    }
+
+    public MethodData analyze(final byte[] b, final int len, final String name,
+            final String desc) {
+        final long start = System.nanoTime();
+        final AnalyzerClassVisitor cv = new AnalyzerClassVisitor(name, desc);
+        new ClassReader(b, 0, len).accept(cv, ClassReader.SKIP_FRAMES);
+        AnalysisMetrics.get().add(Stage.PARSE, System.nanoTime() - start - cv.analysis);
+        if (cv.methods.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Method '%s%s' not found", name,
+                    desc));
+        }
+        return cv.methods.get(0);
+    }
+
+    public Methods.Loader loader(final Path file) {
+        return new Methods.Loader() {
+            @Override
+            public MethodData load(final MethodData method) throws IOException {
+                final ReadBuffer buffer = ReadBuffer.get().read(file);
+                return analyze(buffer.array(), buffer.length(), method.name, method.desc);
+            }
+        };
+    }
+
+    public Path source(final String pkg, final String sourceFile) {
+        return project.getSourceIndex().find(pkg, sourceFile);
+    }
+
+    private class AnalyzerClassVisitor extends ClassVisitor {
+
+        private final List<MethodData> methods = new ArrayList<MethodData>();
+
+        private final String methodName;
+
+        private final String methodDesc;
+
+        private String className;
+
+        private String classPackage;
+
+        private String sourceFile;
+
+        private ClassData result;
+
+        // time spent in method analysis, the rest of the visit is parsing
+        private long analysis;
+
+        public AnalyzerClassVisitor(final String methodName, final String methodDesc) {
+            super(Opcodes.ASM4);
+            this.methodName = methodName;
+            this.methodDesc = methodDesc;
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name,
+                final String signature, final String superName, final String[] interfaces) {
+
+            className = name;
+            classPackage = "";
+            final int i = name.lastIndexOf('/');
+            if (i != -1) {
+                classPackage = className.substring(0, i);
+                className = className.substring(i + 1);
+            }
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public void visitSource(final String source, final String debug) {
+            sourceFile = source;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String desc,
+                final String signature, final String[] exceptions) {
+
+            if (methodName != null) {
+                if (!methodName.equals(name) || !methodDesc.equals(desc)) {
+                    return null;
+                }
+            } else if (lazy) {
+                methods.add(new MethodData(access, name, desc, null));
+                return null;
+            }
+            if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+                // no code, no chains and no reason to build a tree
+                methods.add(new MethodData(access, name, desc, Chains.EMPTY));
+                return null;
+            }
+            return new AnalyzerMethodVisitor(this, budget, project.getScope(), access, name, desc,
+                    signature, exceptions);
+        }
+
+        private boolean isComplete() {
+            for (final MethodData method : methods) {
+                if (method.status != MethodData.Status.COMPLETE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void visitEnd() {
+            result = new ClassData(className, classPackage, sourceFile, source(classPackage,
+                    sourceFile), methods);
+        }
+
+    }
+
+    private static class AnalyzerMethodVisitor extends MethodNode {
+
+        private static final int[] NO_INTS = new int[0];
+
+        private static final Label[] NO_LABELS = new Label[0];
+
+        private static final String[] NO_STRINGS = new String[0];
+
+        private final DefUseAnalyzer analyzer = new DefUseAnalyzer();
+        private final ChainSearch dfducs;
+
+        private final AnalyzerClassVisitor owner;
+
+        private final AnalysisScope scope;
+
+        // filled while ASM visits the code, no pass over the instruction list is needed
+        private final Map<Label, Integer> labels = new IdentityHashMap<Label, Integer>();
+
+        // instruction index and line of every line number entry, in visiting order
+        private int[] lineTable = NO_INTS;
+
+        private int lineCount;
+
+        // slot, name and range labels of every local variable entry
+        private int locals;
+
+        private int[] localSlot = NO_INTS;
+
+        private Label[] localRange = NO_LABELS;
+
+        private String[] localName = NO_STRINGS;
+
+        private boolean fieldInsns;
+
+        private boolean varInsns;
+
+        private int[] lines;
+
+        private int[][] localStarts;
+
+        private int[][] localEnds;
+
+        private String[][] localNames;
+
+        private int[][] localOrder;
+
+        private int[][] localReach;
+
+        public AnalyzerMethodVisitor(final AnalyzerClassVisitor owner,
+                final AnalysisBudget budget, final AnalysisScope scope, final int access,
+                final String name, final String desc, final String signature,
+                final String[] exceptions) {
+
+            super(access, name, desc, signature, exceptions);
+            this.owner = owner;
+            this.scope = scope;
+            dfducs = new ChainSearch(budget);
+        }
+
+        @Override
+        public void visitLabel(final Label label) {
+            labels.put(label, instructions.size());
+            super.visitLabel(label);
+        }
+
+        @Override
+        public void visitLineNumber(final int line, final Label start) {
+            final Integer index = labels.get(start);
+            if (index != null) {
+                if (lineCount * 2 == lineTable.length) {
+                    lineTable = Arrays.copyOf(lineTable, Math.max(16, lineTable.length * 2));
+                }
+                lineTable[lineCount * 2] = index;
+                lineTable[lineCount * 2 + 1] = line;
+                lineCount++;
+            }
+            super.visitLineNumber(line, start);
+        }
+
+        @Override
+        public void visitFieldInsn(final int opcode, final String owner, final String name,
+                final String desc) {
+            fieldInsns = true;
+            super.visitFieldInsn(opcode, owner, name, desc);
+        }
+
+        @Override
+        public void visitVarInsn(final int opcode, final int var) {
+            varInsns = true;
+            super.visitVarInsn(opcode, var);
+        }
+
+        @Override
+        public void visitIincInsn(final int var, final int increment) {
+            varInsns = true;
+            super.visitIincInsn(var, increment);
+        }
+
+        @Override
+        public void visitLocalVariable(final String name, final String desc,
+                final String signature, final Label start, final Label end, final int index) {
+            if (locals == localSlot.length) {
+                final int capacity = Math.max(4, locals * 2);
+                localSlot = Arrays.copyOf(localSlot, capacity);
+                localName = Arrays.copyOf(localName, capacity);
+                localRange = Arrays.copyOf(localRange, capacity * 2);
+            }
+            localSlot[locals] = index;
+            localName[locals] = name;
+            localRange[locals * 2] = start;
+            localRange[locals * 2 + 1] = end;
+            locals++;
+            super.visitLocalVariable(name, desc, signature, start, end, index);
+        }
+
+        @Override
+        public void visitEnd() {
+            final long start = System.nanoTime();
+            // a chain needs a use, without any load there is nothing to search
+            if (scope == AnalysisScope.FIELDS ? !fieldInsns : scope == AnalysisScope.LOCALS
+                    ? !varInsns : !fieldInsns && !varInsns) {
+                owner.methods.add(new MethodData(access, name, desc, Chains.EMPTY));
+                final long elapsed = System.nanoTime() - start;
+                owner.analysis += elapsed;
+                AnalysisMetrics.get().method(owner.className, name + desc, elapsed, 0,
+                        MethodData.Status.COMPLETE);
+                return;
+            }
+
+            lines = new int[instructions.size()];
+            for (int i = 0; i < lineCount; i++) {
+                lines[lineTable[i * 2]] = lineTable[i * 2 + 1];
+            }
+            int line = 1;
+            for (int i = 0; i < lines.length; i++) {
+                if (lines[i] == 0)
+                    lines[i] = line;
+                else
+                    line = lines[i];
+            }
+
+            locals();
+
+            final DefUseChain[] duas = search(start);
+            final MethodData.Status status = dfducs.status() != null ? dfducs.status()
+                    : MethodData.Status.COMPLETE;
+            final Variable[] vars = duas.length == 0 ? new Variable[0] : analyzer.getVariables();
+
+            final Chains.Builder chains = new Chains.Builder(duas.length);
+            for (final DefUseChain dua : duas) {
+                final Variable var = vars[dua.var];
+                final int def = lines[dua.def];
+                final int use = lines[dua.use];
+                String name = null;
+                if (var instanceof Field) {
+                    name = ((Field) var).name;
+                } else if (var instanceof Local) {
+                    name = varName(dua.def, ((Local) var).var);
+                }
+                chains.add(def, use, name != null ? name : var.toString());
+            }
+
+            owner.methods.add(new MethodData(access, name, desc, chains.build(), status));
+
+            final long elapsed = System.nanoTime() - start;
+            owner.analysis += elapsed;
+            AnalysisMetrics.get().method(owner.className, name + desc, elapsed, duas.length,
+                    status);
+        }
+
+        private DefUseChain[] search(final long started) {
+            final AnalysisMetrics metrics = AnalysisMetrics.get();
+            try {
+                long start = System.nanoTime();
+                analyzer.analyze(owner.className, this);
+                metrics.time(Stage.ANALYZE, start);
+
+                // find all definition-use chains, or those found until the budget ran out
+                start = System.nanoTime();
+                DefUseChain[] duas = dfducs.search(analyzer.getDefUseFrames(),
+                        analyzer.getVariables(), analyzer.getSuccessors(), started);
+                metrics.time(Stage.SEARCH, start);
+
+                if (scope == AnalysisScope.ALL) {
+                    return duas;
+                }
+                if (scope != AnalysisScope.GLOBAL) {
+                    duas = select(duas, analyzer.getVariables());
+                }
+
+                // only global definition-use chains
+                start = System.nanoTime();
+                final DefUseChain[] globals = DefUseChain.globals(duas, analyzer.getLeaders(),
+                        analyzer.getBasicBlocks());
+                metrics.time(Stage.GLOBALS, start);
+                return globals;
+            } catch (final AnalyzerException ignore) {
+                return new DefUseChain[0];
+            }
+        }
+
+        // keeps the chains of the kind of variable in scope, before globals looks at them
+        private DefUseChain[] select(final DefUseChain[] duas, final Variable[] vars) {
+            final boolean fields = scope == AnalysisScope.FIELDS;
+            int n = 0;
+            final DefUseChain[] selected = new DefUseChain[duas.length];
+            for (final DefUseChain dua : duas) {
+                if (vars[dua.var] instanceof Field == fields) {
+                    selected[n++] = dua;
+                }
+            }
+            return Arrays.copyOf(selected, n);
+        }
+
+        // local variable ranges per slot, sorted by the instruction where they start
+        private void locals() {
+            int slots = 0;
+            for (int i = 0; i < locals; i++) {
+                slots = Math.max(slots, localSlot[i] + 1);
+            }
+            final int[] counts = new int[slots];
+            for (int i = 0; i < locals; i++) {
+                counts[localSlot[i]]++;
+            }
+            final long[][] order = new long[slots][];
+            for (int slot = 0; slot < slots; slot++) {
+                order[slot] = new long[counts[slot]];
+                counts[slot] = 0;
+            }
+            for (int i = 0; i < locals; i++) {
+                // start in the high bits, declaration order breaks ties
+                final long start = index(localRange[i * 2]);
+                order[localSlot[i]][counts[localSlot[i]]++] = start << 32 | i;
+            }
+            localStarts = new int[slots][];
+            localEnds = new int[slots][];
+            localNames = new String[slots][];
+            localOrder = new int[slots][];
+            localReach = new int[slots][];
+            for (int slot = 0; slot < slots; slot++) {
+                Arrays.sort(order[slot]);
+                localStarts[slot] = new int[order[slot].length];
+                localEnds[slot] = new int[order[slot].length];
+                localNames[slot] = new String[order[slot].length];
+                localOrder[slot] = new int[order[slot].length];
+                localReach[slot] = new int[order[slot].length];
+                int reach = -1;
+                for (int j = 0; j < order[slot].length; j++) {
+                    final int i = (int) order[slot][j];
+                    localStarts[slot][j] = (int) (order[slot][j] >>> 32);
+                    localEnds[slot][j] = index(localRange[i * 2 + 1]);
+                    localNames[slot][j] = localName[i];
+                    localOrder[slot][j] = i;
+                    // furthest end among the ranges up to j, bounds the walk back in varName
+                    reach = Math.max(reach, localEnds[slot][j]);
+                    localReach[slot][j] = reach;
+                }
+            }
+        }
+
+        private int index(final Label label) {
+            final Integer index = labels.get(label);
+            return index != null ? index : instructions.size();
+        }
+
+        private String varName(final int insn, final int index) {
+            if (index >= localStarts.length) {
+                return null;
+            }
+            final int[] starts = localStarts[index];
+            final int[] ends = localEnds[index];
+            final int[] reach = localReach[index];
+            // last range starting at or before insn + 1
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (starts[mid] <= insn + 1) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            // ranges may nest or overlap, the first declared one containing insn + 1 wins
+            int found = -1;
+            for (int j = low - 1; j >= 0 && reach[j] >= insn + 1; j--) {
+                if (insn + 1 <= ends[j]
+                        && (found < 0 || localOrder[index][j] < localOrder[index][found])) {
+                    found = j;
+                }
+            }
+            return found < 0 ? null : localNames[index][found];
+        }
+
+    }
+
+    public static class ClassData {
+
+        public final String name;
+        public final String pkg;
+        public final String sourceFile;
+        public final Path source;
+        public final List<MethodData> methods;
+
+        public ClassData(final String name, final String pkg, final String sourceFile,
+                final Path source, final List<MethodData> methods) {
+            this.name = name;
+            this.pkg = pkg;
+            this.sourceFile = sourceFile;
+            this.source = source;
+            this.methods = Collections.unmodifiableList(methods);
+        }
+
+    }
+
+    public static class MethodData {
+
+        public final int access;
+        public final String name;
+        public final String desc;
+        public final Chains chains;
+        public final Status status;
+
+        public MethodData(final int access, final String name, final String desc,
+                final Chains chains) {
+            this(access, name, desc, chains, Status.COMPLETE);
+        }
+
+        public MethodData(final int access, final String name, final String desc,
+                final Chains chains, final Status status) {
+            this.access = access;
+            this.name = name;
+            this.desc = desc;
+            this.chains = chains;
+            this.status = status;
+        }
+
+        public boolean isAnalyzed() {
+            return chains != null;
+        }
+
+        public enum Status {
+
+            COMPLETE, TRUNCATED, TIMED_OUT
+
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatcherChain;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatchers;
+
+public class ExportApp {
+
+    public static void main(final String[] args) throws IOException {
+
+        // three arguments may be the long form missing its output, never guess
+        if (args.length != 2 && args.length != 4 && args.length != 5) {
+            usage();
+            return;
+        }
+        final String output = args.length == 2 ? args[1] : args[3];
+        final String format = args.length == 5 ? args[4] : System.getProperty(
+                "sourceviz.format", "jsonl");
+        if (!ChainWriter.isFormat(format)) {
+            System.err.println(String.format("Unknown format '%s'", format));
+            usage();
+            return;
+        }
+        if (!"-".equals(output) && isInput(Paths.get(output))) {
+            System.err.println(String.format("Refusing to overwrite '%s'", output));
+            usage();
+            return;
+        }
+        final ProjectDescriptor descriptor;
+        if (args.length == 2) {
+            descriptor = ProjectDescriptor.open(Paths.get(args[0]));
+        } else {
+            descriptor = ProjectDescriptor.of(Paths.get(args[0]), args[1], args[2]);
+        }
+
+        final int parallelism = Integer.getInteger("sourceviz.parallelism", Runtime.getRuntime()
+                .availableProcessors());
+        final PathMatcherChain include = new PathMatcherChain(PathMatchers.get("glob:*.class"));
+        AnalysisMetrics.get().register();
+
+        try (Project project = descriptor.toProject();
+                Writer out = open(output)) {
+
+            final AnalysisCache cache;
+            if (Boolean.getBoolean("sourceviz.cache")) {
+                cache = new AnalysisCache(project);
+            } else {
+                cache = null;
+            }
+            final AnalysisBudget budget = new AnalysisBudget(Long.getLong("sourceviz.timeout",
+                    AnalysisBudget.DEFAULT_TIMEOUT), Integer.getInteger("sourceviz.maxchains",
+                    AnalysisBudget.DEFAULT_MAX_CHAINS));
+            final ClassAnalyzer analyzer = new ClassAnalyzer(project, false, cache, budget);
+            final ChainExporter exporter = new ChainExporter(project, analyzer, parallelism,
+                    ChainWriter.create(format, out));
+            try {
+                for (final Path path : project.getClassPaths()) {
+                    exporter.walk(path, include, project.getFilter());
+                }
+                exporter.finish();
+            } finally {
+                exporter.shutdown();
+            }
+        }
+        if (Boolean.getBoolean("sourceviz.metrics")) {
+            System.err.print(AnalysisMetrics.get().getSummary());
+        }
+    }
+
+    // an archive, a class file or a directory is never an export written by us
+    private static boolean isInput(final Path output) {
+        if (Files.isDirectory(output)) {
+            return true;
+        }
+        return Files.exists(output)
+                && (Project.isArchive(output) || output.toString().endsWith(".class"));
+    }
+
+    private static void usage() {
+        System.err.println("usage: ExportApp <root> <classes> <sources> <output> [csv|jsonl]");
+        System.err.println("       ExportApp <project.properties | directory> <output>");
+        System.err.println("       (-Dsourceviz.format=csv|jsonl sets the format of the latter)");
+    }
+
+    private static Writer open(final String output) throws IOException {
+        if ("-".equals(output)) {
+            return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+    }
+
+}
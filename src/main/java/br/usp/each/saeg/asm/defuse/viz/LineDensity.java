@@ -0,0 +1,108 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+public class LineDensity {
+
+    public static final LineDensity EMPTY = new LineDensity(new int[0], new int[0], 0);
+
+    private final int[] lines;
+
+    private final int[] counts;
+
+    private final int max;
+
+    private LineDensity(final int[] lines, final int[] counts, final int max) {
+        this.lines = lines;
+        this.counts = counts;
+        this.max = max;
+    }
+
+    public int size() {
+        return lines.length;
+    }
+
+    public int line(final int index) {
+        return lines[index];
+    }
+
+    public int count(final int index) {
+        return counts[index];
+    }
+
+    public int max() {
+        return max;
+    }
+
+    public static LineDensity of(final Chains... chains) {
+        int last = 0;
+        for (final Chains c : chains) {
+            for (int i = 0; c != null && i < c.size(); i++) {
+                last = Math.max(last, Math.max(c.def(i), c.use(i)));
+            }
+        }
+        if (last == 0) {
+            return EMPTY;
+        }
+
+        // lines are small and dense, counting beats sorting
+        final int[] histogram = new int[last + 1];
+        for (final Chains c : chains) {
+            for (int i = 0; c != null && i < c.size(); i++) {
+                final int def = c.def(i);
+                final int use = c.use(i);
+                if (def > 0) {
+                    histogram[def]++;
+                }
+                if (use > 0 && use != def) {
+                    histogram[use]++;
+                }
+            }
+        }
+        int distinct = 0;
+        int max = 0;
+        for (int line = 1; line <= last; line++) {
+            if (histogram[line] != 0) {
+                distinct++;
+                max = Math.max(max, histogram[line]);
+            }
+        }
+        final int[] lines = new int[distinct];
+        final int[] counts = new int[distinct];
+        for (int line = 1, i = 0; line <= last; line++) {
+            if (histogram[line] != 0) {
+                lines[i] = line;
+                counts[i++] = histogram[line];
+            }
+        }
+        return new LineDensity(lines, counts, max);
+    }
+
+}
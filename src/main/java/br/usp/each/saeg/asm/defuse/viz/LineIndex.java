@@ -0,0 +1,151 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.util.List;
+
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
+
+public class LineIndex {
+
+    private final ExplorerTreeNode[] classes;
+
+    private final Methods[] owners;
+
+    private final int[] loaded;
+
+    // entries of line l are offsets[l] until offsets[l + 1]
+    private final int[] offsets;
+
+    private final int[] klass;
+
+    private final int[] method;
+
+    private final int[] chain;
+
+    public LineIndex(final List<ExplorerTreeNode> nodes) {
+        classes = nodes.toArray(new ExplorerTreeNode[nodes.size()]);
+        owners = new Methods[classes.length];
+        loaded = new int[classes.length];
+
+        int last = 0;
+        for (int k = 0; k < classes.length; k++) {
+            if (classes[k].getRows() instanceof Methods) {
+                owners[k] = (Methods) classes[k].getRows();
+                loaded[k] = owners[k].loaded();
+                for (int m = 0; m < owners[k].size(); m++) {
+                    final Chains c = owners[k].getRows(m);
+                    for (int i = 0; c != null && i < c.size(); i++) {
+                        last = Math.max(last, Math.max(c.def(i), c.use(i)));
+                    }
+                }
+            }
+        }
+
+        // counting sort by line, the same chain is listed once per distinct line
+        offsets = new int[last + 2];
+        forEach(new Entry() {
+            @Override
+            public void accept(final int line, final int k, final int m, final int i) {
+                offsets[line + 1]++;
+            }
+        });
+        for (int line = 1; line < offsets.length; line++) {
+            offsets[line] += offsets[line - 1];
+        }
+        final int size = offsets[offsets.length - 1];
+        klass = new int[size];
+        method = new int[size];
+        chain = new int[size];
+        final int[] next = new int[last + 1];
+        System.arraycopy(offsets, 0, next, 0, next.length);
+        forEach(new Entry() {
+            @Override
+            public void accept(final int line, final int k, final int m, final int i) {
+                final int at = next[line]++;
+                klass[at] = k;
+                method[at] = m;
+                chain[at] = i;
+            }
+        });
+    }
+
+    private void forEach(final Entry entry) {
+        for (int k = 0; k < owners.length; k++) {
+            for (int m = 0; owners[k] != null && m < owners[k].size(); m++) {
+                final Chains c = owners[k].getRows(m);
+                for (int i = 0; c != null && i < c.size(); i++) {
+                    final int def = c.def(i);
+                    final int use = c.use(i);
+                    if (def > 0) {
+                        entry.accept(def, k, m, i);
+                    }
+                    if (use > 0 && use != def) {
+                        entry.accept(use, k, m, i);
+                    }
+                }
+            }
+        }
+    }
+
+    // methods analyzed lazily after the index was built are not in it
+    public boolean isStale() {
+        for (int k = 0; k < owners.length; k++) {
+            if (owners[k] != classes[k].getRows()
+                    || owners[k] != null && loaded[k] != owners[k].loaded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int start(final int line) {
+        return line < 1 || line + 1 >= offsets.length ? 0 : offsets[line];
+    }
+
+    public int end(final int line) {
+        return line < 1 || line + 1 >= offsets.length ? 0 : offsets[line + 1];
+    }
+
+    public String method(final int entry) {
+        return owners[klass[entry]].getMethod(method[entry]).name;
+    }
+
+    public ExplorerTreeNode node(final int entry) {
+        return classes[klass[entry]].getRowAt(method[entry]).getRowAt(chain[entry]);
+    }
+
+    private interface Entry {
+
+        void accept(int line, int k, int m, int i);
+
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.objectweb.asm.Opcodes;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.MethodData;
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
+import br.usp.each.saeg.asm.defuse.viz.swing.NodeType;
+
+public class Methods implements ExplorerTreeNode.Rows {
+
+    private final MethodData[] methods;
+
+    private final Chains[] chains;
+
+    private final Loader loader;
+
+    private LineDensity density;
+
+    public Methods(final List<MethodData> methods, final Loader loader) {
+        this.methods = methods.toArray(new MethodData[methods.size()]);
+        this.loader = loader;
+        chains = new Chains[this.methods.length];
+        for (int i = 0; i < chains.length; i++) {
+            chains[i] = this.methods[i].chains;
+        }
+    }
+
+    public MethodData getMethod(final int index) {
+        return methods[index];
+    }
+
+    @Override
+    public int size() {
+        return methods.length;
+    }
+
+    @Override
+    public String get(final int index) {
+        final MethodData method = methods[index];
+        switch (method.status) {
+        case TRUNCATED:
+            return method.name + method.desc + " [truncated]";
+        case TIMED_OUT:
+            return method.name + method.desc + " [timed out]";
+        default:
+            return method.name + method.desc;
+        }
+    }
+
+    @Override
+    public NodeType getType(final int index) {
+        switch (methods[index].access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PRIVATE
+                | Opcodes.ACC_PROTECTED)) {
+        case Opcodes.ACC_PUBLIC:
+            return NodeType.METHOD_PUBLIC;
+        case Opcodes.ACC_PRIVATE:
+            return NodeType.METHOD_PRIVATE;
+        case Opcodes.ACC_PROTECTED:
+            return NodeType.METHOD_PROTECTED;
+        default:
+            return NodeType.METHOD_DEFAULT;
+        }
+    }
+
+    @Override
+    public Chains getRows(final int index) {
+        return chains[index];
+    }
+
+    @Override
+    public boolean isLoaded(final int index) {
+        return chains[index] != null;
+    }
+
+    @Override
+    public Runnable load(final int index) throws IOException {
+        if (chains[index] != null) {
+            return null;
+        }
+        // the analysis runs here, the arrays only change on the EDT
+        final MethodData loaded = loader.load(methods[index]);
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (chains[index] == null) {
+                    methods[index] = loaded;
+                    chains[index] = loaded.chains;
+                    density = null;
+                }
+            }
+        };
+    }
+
+    public int loaded() {
+        int count = 0;
+        for (final Chains c : chains) {
+            if (c != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // only the methods analyzed so far contribute to the class density
+    public LineDensity density() {
+        if (density == null) {
+            density = LineDensity.of(chains);
+        }
+        return density;
+    }
+
+    public interface Loader {
+
+        MethodData load(MethodData method) throws IOException;
+
+    }
+
+}
@@ -29,14 +29,24 @@
  */
 package br.usp.each.saeg.asm.defuse.viz;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
-public class Project {
+import br.usp.each.saeg.asm.defuse.viz.commons.PathFilter;
+
+public class Project implements Closeable {
+
+    private static final String[] ARCHIVES = { ".jar", ".zip", ".war" };
 
     private final Path root;
 
@@ -44,11 +54,31 @@ public class Project {
 
     private final List<Path> sources;
 
+    private final AnalysisScope scope;
+
+    private final PathFilter filter;
+
+    private final SourceIndex sourceIndex;
+
+    private final Map<Path, FileSystem> archives = new HashMap<Path, FileSystem>();
+
     public Project(final Path root, final List<Path> classes, final List<Path> sources) {
+        this(root, classes, sources, AnalysisScope.GLOBAL);
+    }
+
+    public Project(final Path root, final List<Path> classes, final List<Path> sources,
+            final AnalysisScope scope) {
+        this(root, classes, sources, scope, PathFilter.ACCEPT_ALL);
+    }
+
+    public Project(final Path root, final List<Path> classes, final List<Path> sources,
+            final AnalysisScope scope, final PathFilter filter) {
 
         Objects.requireNonNull(root);
         Objects.requireNonNull(classes);
         Objects.requireNonNull(sources);
+        Objects.requireNonNull(scope);
+        Objects.requireNonNull(filter);
 
         if (!root.isAbsolute()) {
             throw new IllegalArgumentException(String.format(
@@ -60,11 +90,24 @@ public class Project {
         }
 
         this.root = root;
-        this.classes = absolutefy(classes);
-        this.sources = absolutefy(sources);
+        this.classes = absolutefy(classes, true);
+        this.sources = absolutefy(sources, false);
+        this.scope = scope;
+        this.filter = filter;
+        sourceIndex = new SourceIndex(this.sources);
+    }
+
+    public static boolean isArchive(final Path path) {
+        final String name = path.getFileName().toString().toLowerCase();
+        for (final String extension : ARCHIVES) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private List<Path> absolutefy(final List<Path> paths) {
+    private List<Path> absolutefy(final List<Path> paths, final boolean allowArchives) {
         final List<Path> result = new ArrayList<Path>(paths.size());
         for (Path path : paths) {
             if (path.isAbsolute()) {
@@ -79,7 +122,12 @@ public class Project {
                             "'%s' should be a relative to '%s'", path, root));
                 }
             }
-            if (!Files.isDirectory(path)) {
+            if (allowArchives && isArchive(path)) {
+                if (!Files.isRegularFile(path)) {
+                    throw new IllegalArgumentException(String.format(
+                            "'%s' should be a valid archive", path));
+                }
+            } else if (!Files.isDirectory(path)) {
                 throw new IllegalArgumentException(String.format(
                         "'%s' should be a valid directory", path));
             }
@@ -100,4 +148,48 @@ public class Project {
         return Collections.unmodifiableList(sources);
     }
 
+    public AnalysisScope getScope() {
+        return scope;
+    }
+
+    public PathFilter getFilter() {
+        return filter;
+    }
+
+    public SourceIndex getSourceIndex() {
+        return sourceIndex;
+    }
+
+    public Path getClassRoot(final Path classPath) throws IOException {
+        if (!isArchive(classPath)) {
+            return classPath;
+        }
+        synchronized (archives) {
+            FileSystem fs = archives.get(classPath);
+            if (fs == null) {
+                fs = FileSystems.newFileSystem(classPath, (ClassLoader) null);
+                archives.put(classPath, fs);
+            }
+            return fs.getRootDirectories().iterator().next();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (archives) {
+            IOException exc = null;
+            for (final FileSystem fs : archives.values()) {
+                try {
+                    fs.close();
+                } catch (final IOException e) {
+                    exc = e;
+                }
+            }
+            archives.clear();
+            if (exc != null) {
+                throw exc;
+            }
+        }
+    }
+
 }
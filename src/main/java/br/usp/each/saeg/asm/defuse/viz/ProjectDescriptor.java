@@ -0,0 +1,179 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import br.usp.each.saeg.asm.defuse.viz.commons.PathFilter;
+
+public class ProjectDescriptor {
+
+    public static final String MAVEN_POM = "pom.xml";
+
+    public static final String MAVEN_CLASSES = "target/classes";
+
+    public static final String MAVEN_SOURCES = "src/main/java";
+
+    private final Path root;
+
+    private final List<Path> classes;
+
+    private final List<Path> sources;
+
+    private final Properties properties;
+
+    private ProjectDescriptor(final Path root, final List<Path> classes,
+            final List<Path> sources, final Properties properties) {
+        this.root = root;
+        this.classes = classes;
+        this.sources = sources;
+        this.properties = properties;
+    }
+
+    public static ProjectDescriptor of(final Path root, final String classes,
+            final String sources) {
+        return new ProjectDescriptor(root, paths(classes), paths(sources), new Properties());
+    }
+
+    // a descriptor file, or a directory to search for Maven modules
+    public static ProjectDescriptor open(final Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return discover(path);
+        }
+        return read(path);
+    }
+
+    public static ProjectDescriptor read(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        final Path dir = file.toAbsolutePath().getParent();
+        final Path root = dir.resolve(properties.getProperty("root", ".")).normalize();
+        if (Boolean.parseBoolean(properties.getProperty("maven"))) {
+            final ProjectDescriptor modules = discover(root);
+            return new ProjectDescriptor(root, concat(modules.classes, paths(properties
+                    .getProperty("classes"))), concat(modules.sources, paths(properties
+                    .getProperty("sources"))), properties);
+        }
+        return new ProjectDescriptor(root, paths(properties.getProperty("classes")),
+                paths(properties.getProperty("sources")), properties);
+    }
+
+    public static ProjectDescriptor discover(final Path dir) throws IOException {
+        final Path root = dir.toAbsolutePath().normalize();
+        final List<Path> classes = new ArrayList<Path>();
+        final List<Path> sources = new ArrayList<Path>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir,
+                    final BasicFileAttributes attrs) {
+                final String name = dir.equals(root) ? "" : dir.getFileName().toString();
+                // modules never live under build output, sources or hidden directories
+                if (name.startsWith(".") || name.equals("target") || name.equals("src")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (Files.isRegularFile(dir.resolve(MAVEN_POM))) {
+                    add(classes, dir.resolve(MAVEN_CLASSES));
+                    add(sources, dir.resolve(MAVEN_SOURCES));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private void add(final List<Path> list, final Path path) {
+                if (Files.isDirectory(path)) {
+                    list.add(root.relativize(path));
+                }
+            }
+        });
+        Collections.sort(classes);
+        Collections.sort(sources);
+        return new ProjectDescriptor(root, classes, sources, new Properties());
+    }
+
+    // system properties win over the descriptor, so a single run can be tuned
+    public Project toProject() {
+        final AnalysisScope scope = AnalysisScope.valueOf(property("scope", "global")
+                .toUpperCase());
+        final PathFilter filter = PathFilter.compile(PathFilter.split(property("include",
+                null)), PathFilter.split(property("exclude", null)));
+        return new Project(root, classes, sources, scope, filter);
+    }
+
+    private String property(final String key, final String def) {
+        return System.getProperty("sourceviz." + key, properties.getProperty(key, def));
+    }
+
+    public Path getRootPath() {
+        return root;
+    }
+
+    public List<Path> getClassPaths() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    public List<Path> getSourcePaths() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    private static List<Path> paths(final String list) {
+        final List<Path> result = new ArrayList<Path>();
+        if (list == null) {
+            return result;
+        }
+        // both the platform path separator and commas split a list
+        for (final String path : list.split("[,\\" + File.pathSeparatorChar + "]")) {
+            if (!path.trim().isEmpty()) {
+                result.add(Paths.get(path.trim()));
+            }
+        }
+        return result;
+    }
+
+    private static List<Path> concat(final List<Path> a, final List<Path> b) {
+        final List<Path> result = new ArrayList<Path>(a);
+        result.addAll(b);
+        return result;
+    }
+
+}
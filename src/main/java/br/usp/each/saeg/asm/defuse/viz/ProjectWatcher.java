@@ -0,0 +1,249 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.ClassData;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatcherChain;
+import br.usp.each.saeg.asm.defuse.viz.commons.ReadBuffer;
+
+public class ProjectWatcher implements Closeable {
+
+    // a compiler writes many files in a burst, wait for it to settle down
+    private static final long QUIET_PERIOD = 100;
+
+    private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+
+    private final List<Path> classDirs = new ArrayList<Path>();
+
+    private final WatchService service;
+
+    private final Project project;
+
+    private final ClassAnalyzer analyzer;
+
+    private final PathMatcherChain include;
+
+    private final Listener listener;
+
+    private final Thread thread;
+
+    public ProjectWatcher(final Project project, final ClassAnalyzer analyzer,
+            final PathMatcherChain include, final Listener listener) throws IOException {
+
+        this.project = project;
+        this.analyzer = analyzer;
+        this.include = include;
+        this.listener = listener;
+
+        service = FileSystems.getDefault().newWatchService();
+        for (final Path path : project.getClassPaths()) {
+            if (!Project.isArchive(path)) {
+                classDirs.add(path);
+                registerAll(path, null);
+            }
+        }
+        for (final Path path : project.getSourcePaths()) {
+            registerAll(path, null);
+        }
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "project-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    private void registerAll(final Path start, final Set<Path> created) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir,
+                    final BasicFileAttributes attrs) throws IOException {
+                final WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (created != null) {
+                    created.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                final Set<Path> changed = new LinkedHashSet<Path>();
+                final Set<Path> deleted = new LinkedHashSet<Path>();
+                WatchKey key = service.take();
+                while (key != null) {
+                    collect(key, changed, deleted);
+                    key = service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+                }
+                dispatch(changed, deleted);
+            }
+        } catch (final ClosedWatchServiceException e) {
+            return;
+        } catch (final InterruptedException e) {
+            return;
+        }
+    }
+
+    private void collect(final WatchKey key, final Set<Path> changed, final Set<Path> deleted) {
+        final Path dir = keys.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            final Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                changed.remove(path);
+                deleted.add(path);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Files.isDirectory(path)) {
+                try {
+                    registerAll(path, changed);
+                } catch (final IOException ignore) {
+                }
+            } else {
+                deleted.remove(path);
+                changed.add(path);
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    private void dispatch(final Set<Path> changed, final Set<Path> deleted) {
+        for (final Path path : deleted) {
+            if (isClassFile(path)) {
+                listener.classDeleted(path);
+            } else if (isSourceFile(path)) {
+                listener.sourceChanged(path);
+            }
+        }
+        for (final Path path : changed) {
+            if (isClassFile(path)) {
+                final ClassData c;
+                try {
+                    final ReadBuffer buffer = ReadBuffer.get().read(path);
+                    c = analyzer.analyze(buffer.array(), buffer.length());
+                } catch (final IOException e) {
+                    // gone or still being written, a later event brings it back
+                    continue;
+                } catch (final RuntimeException e) {
+                    continue;
+                }
+                listener.classChanged(path, c, new Methods(c.methods, analyzer.loader(path)));
+            } else if (isSourceFile(path)) {
+                // the first file of a package the index has not seen yet
+                project.getSourceIndex().add(path);
+                listener.sourceChanged(path);
+            }
+        }
+    }
+
+    private boolean isClassFile(final Path path) {
+        if (!include.matches(path.getFileName())) {
+            return false;
+        }
+        for (final Path dir : classDirs) {
+            if (path.startsWith(dir)) {
+                return project.getFilter().accepts(relative(dir, path));
+            }
+        }
+        return false;
+    }
+
+    private static String relative(final Path dir, final Path path) {
+        final Path relative = dir.relativize(path);
+        final String separator = relative.getFileSystem().getSeparator();
+        return "/".equals(separator) ? relative.toString() : relative.toString().replace(
+                separator, "/");
+    }
+
+    private boolean isSourceFile(final Path path) {
+        for (final Path dir : project.getSourcePaths()) {
+            if (path.startsWith(dir)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public interface Listener {
+
+        void classChanged(Path file, ClassData c, Methods methods);
+
+        void classDeleted(Path file);
+
+        void sourceChanged(Path file);
+
+    }
+
+}
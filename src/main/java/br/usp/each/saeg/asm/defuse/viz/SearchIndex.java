@@ -0,0 +1,258 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
+
+public class SearchIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final ExplorerTreeNode[] classes;
+
+    private final Methods[] owners;
+
+    private final int[] loaded;
+
+    // distinct lower case terms, each one pointing to the entries it names
+    private final String[] terms;
+
+    private final int[] termOffsets;
+
+    private final int[] termEntries;
+
+    // trigram of three chars packed in a long, pointing to the terms containing it
+    private final Map<Long, int[]> trigrams = new HashMap<Long, int[]>();
+
+    private final int[] entryClass;
+
+    private final int[] entryMethod;
+
+    private final int[] entryVar;
+
+    public SearchIndex(final List<ExplorerTreeNode> nodes) {
+        classes = nodes.toArray(new ExplorerTreeNode[nodes.size()]);
+        owners = new Methods[classes.length];
+        loaded = new int[classes.length];
+
+        final Map<String, Integer> ids = new HashMap<String, Integer>();
+        final IntList termOf = new IntList();
+        final IntList klass = new IntList();
+        final IntList method = new IntList();
+        final IntList var = new IntList();
+        for (int k = 0; k < classes.length; k++) {
+            add(ids, termOf, String.valueOf(classes[k].getUserObject()));
+            klass.add(k);
+            method.add(-1);
+            var.add(-1);
+            if (!(classes[k].getRows() instanceof Methods)) {
+                continue;
+            }
+            owners[k] = (Methods) classes[k].getRows();
+            loaded[k] = owners[k].loaded();
+            for (int m = 0; m < owners[k].size(); m++) {
+                add(ids, termOf, owners[k].get(m));
+                klass.add(k);
+                method.add(m);
+                var.add(-1);
+                final Chains c = owners[k].getRows(m);
+                for (int v = 0; c != null && v < c.names(); v++) {
+                    add(ids, termOf, c.name(v));
+                    klass.add(k);
+                    method.add(m);
+                    var.add(v);
+                }
+            }
+        }
+        entryClass = klass.toArray();
+        entryMethod = method.toArray();
+        entryVar = var.toArray();
+
+        terms = new String[ids.size()];
+        for (final Map.Entry<String, Integer> entry : ids.entrySet()) {
+            terms[entry.getValue()] = entry.getKey();
+        }
+
+        // entries grouped by term with a counting sort
+        final int[] entryTerms = termOf.toArray();
+        termOffsets = new int[terms.length + 1];
+        for (final int t : entryTerms) {
+            termOffsets[t + 1]++;
+        }
+        for (int t = 1; t < termOffsets.length; t++) {
+            termOffsets[t] += termOffsets[t - 1];
+        }
+        termEntries = new int[entryTerms.length];
+        final int[] next = Arrays.copyOf(termOffsets, terms.length);
+        for (int e = 0; e < entryTerms.length; e++) {
+            termEntries[next[entryTerms[e]]++] = e;
+        }
+
+        final Map<Long, IntList> grams = new HashMap<Long, IntList>();
+        for (int t = 0; t < terms.length; t++) {
+            final String term = terms[t];
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                final Long gram = trigram(term, i);
+                IntList list = grams.get(gram);
+                if (list == null) {
+                    list = new IntList();
+                    grams.put(gram, list);
+                }
+                // terms are visited in order, a repeated trigram repeats the last id
+                if (list.size == 0 || list.values[list.size - 1] != t) {
+                    list.add(t);
+                }
+            }
+        }
+        for (final Map.Entry<Long, IntList> entry : grams.entrySet()) {
+            trigrams.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    private static void add(final Map<String, Integer> ids, final IntList termOf,
+            final String term) {
+        final String key = term.toLowerCase(Locale.ROOT);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size();
+            ids.put(key, id);
+        }
+        termOf.add(id);
+    }
+
+    private static Long trigram(final String s, final int i) {
+        return (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+    }
+
+    public boolean isStale() {
+        for (int k = 0; k < owners.length; k++) {
+            if (owners[k] != null && loaded[k] != owners[k].loaded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Match> search(final String text, final int limit) {
+        final List<Match> matches = new ArrayList<Match>();
+        final String query = text.trim().toLowerCase(Locale.ROOT);
+        if (query.isEmpty()) {
+            return matches;
+        }
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            final int[] list = trigrams.get(trigram(query, i));
+            if (list == null) {
+                return matches;
+            }
+            if (candidates == null || list.length < candidates.length) {
+                candidates = list;
+            }
+        }
+        final int count = candidates == null ? terms.length : candidates.length;
+        for (int i = 0; i < count && matches.size() < limit; i++) {
+            final int t = candidates == null ? i : candidates[i];
+            if (!terms[t].contains(query)) {
+                continue;
+            }
+            for (int j = termOffsets[t]; j < termOffsets[t + 1] && matches.size() < limit; j++) {
+                matches.add(new Match(termEntries[j]));
+            }
+        }
+        return matches;
+    }
+
+    public class Match {
+
+        private final int entry;
+
+        private Match(final int entry) {
+            this.entry = entry;
+        }
+
+        public ExplorerTreeNode node() {
+            final ExplorerTreeNode node = classes[entryClass[entry]];
+            if (entryMethod[entry] < 0) {
+                return node;
+            }
+            final ExplorerTreeNode method = node.getRowAt(entryMethod[entry]);
+            final Chains chains = owners[entryClass[entry]].getRows(entryMethod[entry]);
+            for (int i = 0; entryVar[entry] >= 0 && i < chains.size(); i++) {
+                if (chains.var(i) == entryVar[entry]) {
+                    return method.getRowAt(i);
+                }
+            }
+            return method;
+        }
+
+        @Override
+        public String toString() {
+            final int k = entryClass[entry];
+            final int m = entryMethod[entry];
+            final String name = String.valueOf(classes[k].getUserObject());
+            if (m < 0) {
+                return name;
+            }
+            final String method = name + "." + owners[k].get(m);
+            if (entryVar[entry] < 0) {
+                return method;
+            }
+            return owners[k].getRows(m).name(entryVar[entry]) + " in " + method;
+        }
+
+    }
+
+    private static class IntList {
+
+        private int[] values = NONE;
+
+        private int size;
+
+        public void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(8, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SourceIndex {
+
+    private static final Path[] NONE = new Path[0];
+
+    private final List<Path> roots;
+
+    private volatile Map<String, Path[]> packages;
+
+    public SourceIndex(final List<Path> roots) {
+        this.roots = roots;
+    }
+
+    public Path find(final String pkg, final String sourceFile) {
+        if (sourceFile == null) {
+            return null;
+        }
+        // only the roots that hold the package are looked at, usually a single one
+        for (final Path root : roots(pkg)) {
+            final Path path = root.resolve(pkg).resolve(sourceFile);
+            if (Files.exists(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    public Path[] roots(final String pkg) {
+        final Path[] result = packages().get(pkg);
+        return result == null ? NONE : result;
+    }
+
+    public void reset() {
+        packages = null;
+    }
+
+    public void add(final Path file) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        for (final Path root : roots) {
+            if (file.startsWith(root) && !file.equals(root)) {
+                add(pkg(root, file.getParent()), root);
+                return;
+            }
+        }
+    }
+
+    private synchronized void add(final String pkg, final Path root) {
+        final Map<String, Path[]> current = packages;
+        if (current == null) {
+            // not built yet, the walk will find it
+            return;
+        }
+        final Path[] known = current.containsKey(pkg) ? current.get(pkg) : NONE;
+        for (final Path path : known) {
+            if (path.equals(root)) {
+                return;
+            }
+        }
+        // readers never lock, publish a new map instead of changing the one they see
+        final Map<String, Path[]> result = new HashMap<String, Path[]>(current);
+        final Path[] updated = Arrays.copyOf(known, known.length + 1);
+        updated[known.length] = root;
+        result.put(pkg, updated);
+        packages = result;
+    }
+
+    private Map<String, Path[]> packages() {
+        Map<String, Path[]> result = packages;
+        if (result == null) {
+            synchronized (this) {
+                result = packages;
+                if (result == null) {
+                    result = build();
+                    packages = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Path[]> build() {
+        final Map<String, List<Path>> index = new HashMap<String, List<Path>>();
+        for (final Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                // a declared root that was never created holds no package
+                continue;
+            }
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    private Path last;
+
+                    @Override
+                    public FileVisitResult visitFile(final Path file,
+                            final BasicFileAttributes attrs) {
+                        final Path dir = file.getParent();
+                        if (!dir.equals(last)) {
+                            last = dir;
+                            add(index, pkg(root, dir), root);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+        final Map<String, Path[]> result = new HashMap<String, Path[]>(index.size() * 2);
+        for (final Map.Entry<String, List<Path>> entry : index.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toArray(new Path[0]));
+        }
+        return result;
+    }
+
+    private static void add(final Map<String, List<Path>> index, final String pkg,
+            final Path root) {
+        List<Path> list = index.get(pkg);
+        if (list == null) {
+            list = new ArrayList<Path>(1);
+            index.put(pkg, list);
+        }
+        if (!list.contains(root)) {
+            list.add(root);
+        }
+    }
+
+    private static String pkg(final Path root, final Path dir) {
+        // package names use the class file separator, whatever the file system's is
+        final String pkg = root.relativize(dir).toString();
+        final String separator = dir.getFileSystem().getSeparator();
+        return "/".equals(separator) ? pkg : pkg.replace(separator, "/");
+    }
+
+}
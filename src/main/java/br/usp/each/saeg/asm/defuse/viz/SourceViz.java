@@ -29,56 +29,171 @@
  */
 package br.usp.each.saeg.asm.defuse.viz;
 
+import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseEvent;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JFrame;
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
 import javax.swing.JSplitPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.tree.TreeNode;
 
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.ClassData;
 import br.usp.each.saeg.asm.defuse.viz.TreeBuilder.DUA;
-import br.usp.each.saeg.asm.defuse.viz.commons.MatcherFileVisitor;
 import br.usp.each.saeg.asm.defuse.viz.commons.PathMatcherChain;
 import br.usp.each.saeg.asm.defuse.viz.commons.PathMatchers;
 import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerPanel;
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeModel;
 import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
 import br.usp.each.saeg.asm.defuse.viz.swing.NodeType;
+import br.usp.each.saeg.asm.defuse.viz.swing.SearchPanel;
+import br.usp.each.saeg.asm.defuse.viz.swing.SourceCache;
 import br.usp.each.saeg.asm.defuse.viz.swing.SourcePanel;
 
-public class SourceViz extends JFrame implements TreeSelectionListener {
+public class SourceViz extends JFrame implements TreeSelectionListener, SourcePanel.LineListener,
+        SearchPanel.SearchListener, ProjectWatcher.Listener {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int MAX_CHOICES = 40;
+
+    private static final int MAX_RESULTS = 500;
+
     private final PathMatcherChain include = new PathMatcherChain(PathMatchers.get("glob:*.class"));
 
+    private final Project project;
+
+    private final ClassAnalyzer analyzer;
+
+    private final int parallelism;
+
     private final ExplorerPanel pkgPanel;
 
     private final SourcePanel srcPanel;
 
+    private final SearchPanel searchPanel;
+
+    private final SourceCache sources;
+
     private Path current;
 
-    public SourceViz(final Project project) throws IOException {
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "source-loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private Future<?> pending;
+
+    private int request;
+
+    private final Map<Path, LineIndex> indexes = new HashMap<Path, LineIndex>();
+
+    private SearchIndex search;
+
+    private TreeBuilder builder;
+
+    private TreeLoader treeLoader;
+
+    private ProjectWatcher watcher;
+
+    public SourceViz(final Project project) {
+        this(project, new ClassAnalyzer(project), Runtime.getRuntime().availableProcessors());
+    }
+
+    public SourceViz(final Project project, final ClassAnalyzer analyzer, final int parallelism) {
+        this(project, analyzer, parallelism, new SourceCache());
+    }
+
+    public SourceViz(final Project project, final ClassAnalyzer analyzer, final int parallelism,
+            final SourceCache sources) {
         super("Source-Viz");
 
+        this.project = project;
+        this.analyzer = analyzer;
+        this.parallelism = parallelism;
+        this.sources = sources;
+
         final Path rootPath = project.getRootPath().getFileName();
         final ExplorerTreeNode node = new ExplorerTreeNode(rootPath, NodeType.PROJECT);
-        final TreeBuilder visitor = new TreeBuilder(node, project);
-
-        for (final Path path : project.getClassPaths()) {
-            Files.walkFileTree(path, new MatcherFileVisitor(include, null, visitor));
-        }
 
         // Setting up package explorer panel
         pkgPanel = new ExplorerPanel(node);
         pkgPanel.addTreeSelectionListener(this);
+        pkgPanel.addLoadListener(new ExplorerPanel.LoadListener() {
+            @Override
+            public void nodeLoaded(final ExplorerTreeNode node) {
+                // the chains of the selected method arrived, show them
+                if (node.equals(pkgPanel.getLastSelectedPathComponent())) {
+                    show(node);
+                }
+            }
+        });
 
         // Setting up source panel
         srcPanel = new SourcePanel();
+        srcPanel.addLineListener(this);
+
+        // Setting up search panel
+        searchPanel = new SearchPanel();
+        searchPanel.addSearchListener(this);
 
-        add(new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, pkgPanel, srcPanel));
+        final JSplitPane left = new JSplitPane(JSplitPane.VERTICAL_SPLIT, searchPanel, pkgPanel);
+        add(new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, left, srcPanel));
+    }
+
+    public void load() {
+        load(false);
+    }
+
+    public void load(final boolean watch) {
+        treeLoader = new TreeLoader(watch);
+        treeLoader.execute();
+    }
+
+    @Override
+    public void dispose() {
+        if (treeLoader != null) {
+            // interrupts the walk and drops the analyses still queued in the builder's pool
+            treeLoader.cancel(true);
+            treeLoader.visitor.shutdown();
+        }
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (final IOException ignore) {
+            }
+        }
+        loader.shutdownNow();
+        pkgPanel.dispose();
+        super.dispose();
     }
 
     // -----------------------------
@@ -87,14 +202,240 @@ public class SourceViz extends JFrame implements TreeSelectionListener {
     @Override
     public void valueChanged(final TreeSelectionEvent e) {
         final ExplorerTreeNode node = pkgPanel.getLastSelectedPathComponent();
-        final Path src = node.getSource();
-        if (src != null && !src.equals(current)) {
-            try {
-                srcPanel.setText(new String(Files.readAllBytes(src)));
-            } catch (final IOException ignore) {
+        if (node == null) {
+            // the selection went away with a patched or deleted class
+            return;
+        }
+        pkgPanel.load(node);
+        show(node);
+    }
+
+    // ----------------------------------
+    // SourcePanel.LineListener methods
+
+    @Override
+    public void lineClicked(final MouseEvent e, final int line) {
+        if (builder == null || current == null) {
+            return;
+        }
+        LineIndex index = indexes.get(current);
+        if (index == null || index.isStale()) {
+            final List<ExplorerTreeNode> nodes = new ArrayList<ExplorerTreeNode>();
+            for (final ExplorerTreeNode node : builder.getClassNodes().values()) {
+                if (current.equals(node.getSource())) {
+                    nodes.add(node);
+                }
+            }
+            index = new LineIndex(nodes);
+            indexes.put(current, index);
+        }
+        final int start = index.start(line);
+        final int end = index.end(line);
+        if (end - start == 1) {
+            pkgPanel.select(index.node(start));
+        } else if (end - start > 1) {
+            final JPopupMenu menu = new JPopupMenu();
+            for (int i = start; i < end && i < start + MAX_CHOICES; i++) {
+                final ExplorerTreeNode node = index.node(i);
+                final JMenuItem item = new JMenuItem(index.method(i) + " " + node.getUserObject());
+                item.addActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(final ActionEvent event) {
+                        pkgPanel.select(node);
+                    }
+                });
+                menu.add(item);
+            }
+            if (end - start > MAX_CHOICES) {
+                final JMenuItem more = new JMenuItem((end - start - MAX_CHOICES) + " more");
+                more.setEnabled(false);
+                menu.add(more);
+            }
+            menu.show(e.getComponent(), e.getX(), e.getY());
+        }
+    }
+
+    // -----------------------------------
+    // SearchPanel.SearchListener methods
+
+    @Override
+    public void searchChanged(final String text) {
+        if (builder == null) {
+            return;
+        }
+        if (search == null || search.isStale()) {
+            search = new SearchIndex(new ArrayList<ExplorerTreeNode>(builder.getClassNodes()
+                    .values()));
+        }
+        searchPanel.setResults(search.search(text, MAX_RESULTS));
+    }
+
+    @Override
+    public void resultSelected(final Object value) {
+        pkgPanel.select(((SearchIndex.Match) value).node());
+    }
+
+    // -------------------------------
+    // ProjectWatcher.Listener methods
+
+    @Override
+    public void classChanged(final Path file, final ClassData c, final Methods methods) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                indexes.clear();
+                search = null;
+                final ExplorerTreeModel model = pkgPanel.getModel();
+                ExplorerTreeNode node = builder.getClassNodes().get(file);
+                if (node == null) {
+                    final ExplorerTreeNode parent = ensurePackage(file.getParent());
+                    node = new ExplorerTreeNode(null, NodeType.CLASS);
+                    TreeBuilder.DIRECT.add(parent, node);
+                    TreeBuilder.DIRECT.fill(node, c, methods);
+                    builder.getClassNodes().put(file, node);
+                    model.nodesWereInserted(parent, new int[] { parent.getIndex(node) });
+                } else {
+                    final List<String> selected = labels(node,
+                            pkgPanel.getLastSelectedPathComponent());
+                    node.removeAllChildren();
+                    TreeBuilder.DIRECT.fill(node, c, methods);
+                    model.nodeStructureChanged(node);
+                    if (selected != null) {
+                        reselect(node, selected);
+                    }
+                }
+                if (c.source != null && c.source.equals(current)) {
+                    current = null;
+                    show(pkgPanel.getLastSelectedPathComponent());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void classDeleted(final Path file) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                indexes.clear();
+                search = null;
+                final ExplorerTreeNode node = builder.getClassNodes().remove(file);
+                if (node != null && node.getParent() != null) {
+                    pkgPanel.getModel().removeNodeFromParent(node);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void sourceChanged(final Path file) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                sources.invalidate(file);
+                if (file.equals(current)) {
+                    current = null;
+                    show(pkgPanel.getLastSelectedPathComponent());
+                }
+            }
+        });
+    }
+
+    // labels from below the class down to the selected node, null if it is not in the class
+    private static List<String> labels(final ExplorerTreeNode node,
+            final ExplorerTreeNode selected) {
+        if (selected == null) {
+            return null;
+        }
+        final TreeNode[] path = selected.getPath();
+        for (int i = 0; i < path.length; i++) {
+            if (path[i] == node) {
+                final List<String> labels = new ArrayList<String>(path.length - i - 1);
+                for (int j = i + 1; j < path.length; j++) {
+                    labels.add(String.valueOf(((ExplorerTreeNode) path[j]).getUserObject()));
+                }
+                return labels;
+            }
+        }
+        return null;
+    }
+
+    // the same method or chain in the patched class, or as close to it as is still there
+    private void reselect(final ExplorerTreeNode node, final List<String> labels) {
+        final ExplorerTreeModel model = pkgPanel.getModel();
+        ExplorerTreeNode at = node;
+        for (final String label : labels) {
+            ExplorerTreeNode found = null;
+            for (int i = 0; i < model.getChildCount(at) && found == null; i++) {
+                final ExplorerTreeNode child = (ExplorerTreeNode) model.getChild(at, i);
+                if (label.equals(String.valueOf(child.getUserObject()))) {
+                    found = child;
+                }
+            }
+            if (found == null) {
+                break;
             }
-            current = src;
+            at = found;
+        }
+        pkgPanel.select(at);
+    }
+
+    private ExplorerTreeNode ensurePackage(final Path dir) {
+        final Map<Path, ExplorerTreeNode> packages = builder.getPackageNodes();
+        ExplorerTreeNode node = packages.get(dir);
+        if (node == null) {
+            final ExplorerTreeNode parent = ensurePackage(dir.getParent());
+            node = new ExplorerTreeNode(dir.getFileName(), NodeType.PACKAGE);
+            TreeBuilder.DIRECT.add(parent, node);
+            packages.put(dir, node);
+            pkgPanel.getModel().nodesWereInserted(parent, new int[] { parent.getIndex(node) });
+        }
+        return node;
+    }
+
+    private void show(final ExplorerTreeNode node) {
+        if (node == null) {
+            return;
+        }
+        // only the latest request is applied, older ones are dropped
+        final int id = ++request;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
         }
+        final Path src = node.getSource();
+        if (src == null || src.equals(current)) {
+            highlight(node);
+            return;
+        }
+        pending = loader.submit(new Runnable() {
+            @Override
+            public void run() {
+                RSyntaxDocument document = null;
+                try {
+                    document = sources.get(src);
+                } catch (final IOException ignore) {
+                }
+                final RSyntaxDocument loaded = document;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (id != request) {
+                            return;
+                        }
+                        pending = null;
+                        if (loaded != null) {
+                            srcPanel.setDocument(loaded);
+                            current = src;
+                        }
+                        highlight(node);
+                    }
+                });
+            }
+        });
+    }
+
+    private void highlight(final ExplorerTreeNode node) {
         srcPanel.clearHighlights();
         if (node.getType() == NodeType.DEFUSE) {
             final DUA dua = (DUA) node.getUserObject();
@@ -107,7 +448,166 @@ public class SourceViz extends JFrame implements TreeSelectionListener {
                 }
             } catch (final BadLocationException ignore) {
             }
+            return;
+        }
+        final ExplorerTreeNode.Rows rows = node.getRows();
+        final LineDensity density;
+        if (rows instanceof Methods) {
+            density = ((Methods) rows).density();
+        } else if (rows instanceof Chains) {
+            density = ((Chains) rows).density();
+        } else {
+            return;
+        }
+        final Map<Integer, Color> lines = new HashMap<Integer, Color>(density.size() * 2);
+        for (int i = 0; i < density.size(); i++) {
+            lines.put(density.line(i), SourcePanel.heat(density.count(i), density.max()));
+        }
+        srcPanel.highlightLines(lines);
+    }
+
+    private class TreeLoader extends SwingWorker<Void, TreeUpdate> implements TreeBuilder.Sink {
+
+        private final boolean watch;
+
+        private final TreeBuilder visitor;
+
+        public TreeLoader(final boolean watch) {
+            this.watch = watch;
+            visitor = new TreeBuilder(pkgPanel.getRoot(), project, analyzer, parallelism, this);
+        }
+
+        @Override
+        protected Void doInBackground() throws IOException {
+            try {
+                for (final Path path : project.getClassPaths()) {
+                    visitor.walk(path, include, project.getFilter());
+                }
+                visitor.merge();
+            } finally {
+                visitor.shutdown();
+            }
+            return null;
         }
+
+        @Override
+        public void add(final ExplorerTreeNode parent, final ExplorerTreeNode child) {
+            publish(new TreeUpdate(parent, child));
+        }
+
+        @Override
+        public void fill(final ExplorerTreeNode node, final ClassData c, final Methods methods) {
+            publish(new TreeUpdate(node, c, methods));
+        }
+
+        @Override
+        protected void process(final List<TreeUpdate> updates) {
+            final long time = System.nanoTime();
+            final ExplorerTreeNode root = pkgPanel.getRoot();
+            final boolean expand = root.isLeaf();
+
+            // Nodes inserted by this batch are announced through their parents only
+            final Set<ExplorerTreeNode> inserted = new HashSet<ExplorerTreeNode>();
+            final Set<ExplorerTreeNode> changed = new HashSet<ExplorerTreeNode>();
+            final Map<ExplorerTreeNode, List<Integer>> indexes;
+            indexes = new LinkedHashMap<ExplorerTreeNode, List<Integer>>();
+
+            final ExplorerTreeModel model = pkgPanel.getModel();
+            for (final TreeUpdate update : updates) {
+                final ExplorerTreeNode parent = update.parent;
+                List<Integer> list = indexes.get(parent);
+                if (list == null) {
+                    list = new ArrayList<Integer>();
+                    indexes.put(parent, list);
+                }
+                final int start = model.getChildCount(parent);
+                if (update.child != null) {
+                    TreeBuilder.DIRECT.add(parent, update.child);
+                    inserted.add(update.child);
+                } else {
+                    TreeBuilder.DIRECT.fill(parent, update.data, update.methods);
+                    changed.add(parent);
+                }
+                for (int i = start; i < model.getChildCount(parent); i++) {
+                    list.add(i);
+                }
+            }
+
+            for (final Map.Entry<ExplorerTreeNode, List<Integer>> entry : indexes.entrySet()) {
+                final ExplorerTreeNode parent = entry.getKey();
+                if (inserted.contains(parent)) {
+                    continue;
+                }
+                if (changed.contains(parent)) {
+                    model.nodeChanged(parent);
+                }
+                final List<Integer> list = entry.getValue();
+                if (!list.isEmpty()) {
+                    final int[] childIndices = new int[list.size()];
+                    for (int i = 0; i < childIndices.length; i++) {
+                        childIndices[i] = list.get(i);
+                    }
+                    model.nodesWereInserted(parent, childIndices);
+                }
+            }
+
+            if (expand && !root.isLeaf()) {
+                pkgPanel.expand(root);
+            }
+            AnalysisMetrics.get().time(AnalysisMetrics.Stage.TREE, time);
+        }
+
+        @Override
+        protected void done() {
+            try {
+                get();
+                builder = visitor;
+                if (Boolean.getBoolean("sourceviz.metrics")) {
+                    System.err.print(AnalysisMetrics.get().getSummary());
+                }
+                if (!searchPanel.getText().isEmpty()) {
+                    searchChanged(searchPanel.getText());
+                }
+                if (watch) {
+                    watcher = new ProjectWatcher(project, analyzer, include, SourceViz.this);
+                    watcher.start();
+                }
+            } catch (final InterruptedException ignore) {
+            } catch (final CancellationException ignore) {
+            } catch (final ExecutionException e) {
+                e.getCause().printStackTrace();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+    private static class TreeUpdate {
+
+        private final ExplorerTreeNode parent;
+
+        private final ExplorerTreeNode child;
+
+        private final ClassData data;
+
+        private final Methods methods;
+
+        public TreeUpdate(final ExplorerTreeNode parent, final ExplorerTreeNode child) {
+            this.parent = parent;
+            this.child = child;
+            data = null;
+            methods = null;
+        }
+
+        public TreeUpdate(final ExplorerTreeNode node, final ClassData data,
+                final Methods methods) {
+            parent = node;
+            child = null;
+            this.data = data;
+            this.methods = methods;
+        }
+
     }
 
-}
\ No newline at end of file
+}
@@ -29,38 +29,72 @@
  */
 package br.usp.each.saeg.asm.defuse.viz;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
-import java.util.List;
 
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
 
 import br.usp.each.saeg.asm.defuse.viz.swing.DisplayUtils;
+import br.usp.each.saeg.asm.defuse.viz.swing.SourceCache;
 
 public class SourceVizApp {
 
-    public static void main(final String[] args) {
+    public static void main(final String[] args) throws IOException {
 
-        final Path root = Paths.get(args[0]);
-        final List<Path> classPaths = Collections.singletonList(Paths.get(args[1]));
-        final List<Path> sourcePaths = Collections.singletonList(Paths.get(args[2]));
-        final Project project = new Project(root, classPaths, sourcePaths);
+        final ProjectDescriptor descriptor;
+        if (args.length == 3) {
+            descriptor = ProjectDescriptor.of(Paths.get(args[0]), args[1], args[2]);
+        } else if (args.length == 1) {
+            descriptor = ProjectDescriptor.open(Paths.get(args[0]));
+        } else {
+            System.err.println("usage: SourceVizApp <root> <classes> <sources>");
+            System.err.println("       SourceVizApp <project.properties | directory>");
+            return;
+        }
+        final Project project = descriptor.toProject();
+        final int parallelism = Integer.getInteger("sourceviz.parallelism", Runtime.getRuntime()
+                .availableProcessors());
+        final boolean lazy = Boolean.getBoolean("sourceviz.lazy");
+        final boolean watch = Boolean.getBoolean("sourceviz.watch");
+        AnalysisMetrics.get().register();
+        final AnalysisCache cache;
+        if (Boolean.getBoolean("sourceviz.cache")) {
+            cache = new AnalysisCache(project);
+        } else {
+            cache = null;
+        }
+        final AnalysisBudget budget = new AnalysisBudget(Long.getLong("sourceviz.timeout",
+                AnalysisBudget.DEFAULT_TIMEOUT), Integer.getInteger("sourceviz.maxchains",
+                AnalysisBudget.DEFAULT_MAX_CHAINS));
+        final ClassAnalyzer analyzer = new ClassAnalyzer(project, lazy, cache, budget);
+        final SourceCache sources = new SourceCache(Long.getLong("sourceviz.sourcecache",
+                SourceCache.DEFAULT_BUDGET));
 
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                try {
-                    final SourceViz frame = new SourceViz(project);
-                    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-                    frame.setSize(DisplayUtils.getProportionalDimension());
-                    frame.setLocationRelativeTo(null);
-                    frame.setVisible(true);
-                } catch (final IOException e) {
-                    e.printStackTrace();
-                }
+                final SourceViz frame = new SourceViz(project, analyzer, parallelism,
+                        sources);
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                frame.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosing(final WindowEvent e) {
+                        // cancels the tree loader and its pool, the other loaders and the
+                        // watcher, an entry read right then may still fail and is dropped
+                        frame.dispose();
+                        try {
+                            project.close();
+                        } catch (final IOException ignore) {
+                        }
+                    }
+                });
+                frame.setSize(DisplayUtils.getProportionalDimension());
+                frame.setLocationRelativeTo(null);
+                frame.setVisible(true);
+                frame.load(watch);
             }
         });
     }
@@ -30,248 +30,259 @@
 package br.usp.each.saeg.asm.defuse.viz;
 
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
-import java.nio.file.attribute.BasicFileAttributes;
-
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.LineNumberNode;
-import org.objectweb.asm.tree.LocalVariableNode;
-import org.objectweb.asm.tree.MethodNode;
-import org.objectweb.asm.tree.analysis.AnalyzerException;
-
-import br.usp.each.saeg.asm.defuse.DefUseAnalyzer;
-import br.usp.each.saeg.asm.defuse.DefUseChain;
-import br.usp.each.saeg.asm.defuse.DepthFirstDefUseChainSearch;
-import br.usp.each.saeg.asm.defuse.Field;
-import br.usp.each.saeg.asm.defuse.Local;
-import br.usp.each.saeg.asm.defuse.Variable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import br.usp.each.saeg.asm.defuse.viz.AnalysisMetrics.Stage;
+import br.usp.each.saeg.asm.defuse.viz.ClassAnalyzer.ClassData;
+import br.usp.each.saeg.asm.defuse.viz.commons.ParallelWalker;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathFilter;
+import br.usp.each.saeg.asm.defuse.viz.commons.PathMatcherChain;
+import br.usp.each.saeg.asm.defuse.viz.commons.ReadBuffer;
 import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode;
 import br.usp.each.saeg.asm.defuse.viz.swing.NodeType;
 
-public class TreeBuilder implements FileVisitor<Path> {
+public class TreeBuilder implements ParallelWalker.Listener, ParallelWalker.Visitor {
 
-    private ExplorerTreeNode node;
+    public static final Sink DIRECT = new Sink() {
+
+        @Override
+        public void add(final ExplorerTreeNode parent, final ExplorerTreeNode child) {
+            parent.add(child);
+        }
+
+        @Override
+        public void fill(final ExplorerTreeNode node, final ClassData c, final Methods methods) {
+            node.setUserObject(c.name);
+            node.setSource(c.source);
+            node.setRows(methods);
+        }
+
+    };
+
+    private final List<PendingClass> pending = new ArrayList<PendingClass>();
 
-    private String className;
+    private final Map<Path, PendingClass> found = new ConcurrentHashMap<Path, PendingClass>();
 
-    private String classPackage;
+    private final Map<Path, ExplorerTreeNode> packages = new HashMap<Path, ExplorerTreeNode>();
 
-    private Path sourcePath;
+    private final Map<Path, ExplorerTreeNode> classes = new LinkedHashMap<Path, ExplorerTreeNode>();
+
+    private final Deque<ExplorerTreeNode> parents = new ArrayDeque<ExplorerTreeNode>();
+
+    private ExplorerTreeNode node;
+
+    private Path classPath;
 
     private final Project project;
 
+    private final ClassAnalyzer analyzer;
+
+    private final ForkJoinPool executor;
+
+    private final Sink sink;
+
+    private final boolean streaming;
+
     public TreeBuilder(final ExplorerTreeNode node, final Project project) {
+        this(node, project, new ClassAnalyzer(project), Runtime.getRuntime().availableProcessors());
+    }
+
+    public TreeBuilder(final ExplorerTreeNode node, final Project project,
+            final ClassAnalyzer analyzer, final int parallelism) {
+        this(node, project, analyzer, parallelism, DIRECT, false);
+    }
+
+    public TreeBuilder(final ExplorerTreeNode node, final Project project,
+            final ClassAnalyzer analyzer, final int parallelism, final Sink sink) {
+        this(node, project, analyzer, parallelism, sink, true);
+    }
+
+    private TreeBuilder(final ExplorerTreeNode node, final Project project,
+            final ClassAnalyzer analyzer, final int parallelism, final Sink sink,
+            final boolean streaming) {
         this.node = node;
         this.project = project;
+        this.analyzer = analyzer;
+        this.sink = sink;
+        this.streaming = streaming;
+        executor = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public void fileFound(final Path file) {
+        // analysis starts while other directories are still being listed
+        final PendingClass p = new PendingClass(file);
+        p.future = executor.submit(p);
+        found.put(file, p);
     }
 
     @Override
-    public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
-            throws IOException {
+    public void preVisitDirectory(final Path dir) {
 
         ExplorerTreeNode n;
-        if (project.getClassPaths().contains(dir)) {
-            n = new ExplorerTreeNode(dir.getFileName(), NodeType.SRC_FOLDER);
+        if (parents.isEmpty()) {
+            // archives are walked from their root, which has no name of its own
+            final Path name = classPath != null ? classPath.getFileName() : dir.getFileName();
+            n = new ExplorerTreeNode(name, NodeType.SRC_FOLDER);
         } else {
             n = new ExplorerTreeNode(dir.getFileName(), NodeType.PACKAGE);
         }
-        node.add(n);
+        sink.add(node, n);
+        packages.put(dir, n);
+        parents.push(node);
         node = n;
-        return FileVisitResult.CONTINUE;
     }
 
     @Override
-    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
-            throws IOException {
-
-        final ClassReader classReader = new ClassReader(Files.readAllBytes(file));
-        classReader.accept(new TreeBuilderClassVisitor(), ClassReader.SKIP_FRAMES);
-
-        return FileVisitResult.CONTINUE;
+    public void visitFile(final Path file) {
+        // Reserve the class position now so the merged tree keeps the walk order
+        final ExplorerTreeNode n = new ExplorerTreeNode(className(file), NodeType.CLASS);
+        sink.add(node, n);
+        classes.put(file, n);
+
+        final PendingClass p = found.remove(file);
+        p.attach(n);
+        pending.add(p);
     }
 
     @Override
-    public FileVisitResult visitFileFailed(final Path file, final IOException exc)
-            throws IOException {
-
-        throw exc;
+    public void postVisitDirectory(final Path dir) {
+        node = parents.pop();
     }
 
-    @Override
-    public FileVisitResult postVisitDirectory(final Path dir, final IOException exc)
-            throws IOException {
-
-        if (exc != null) {
-            throw exc;
+    public void walk(final Path classPath, final PathMatcherChain include,
+            final PathFilter filter) throws IOException {
+
+        this.classPath = classPath;
+        final long start = System.nanoTime();
+        try {
+            new ParallelWalker(executor, include, filter).walk(project.getClassRoot(classPath),
+                    this, this);
+        } finally {
+            this.classPath = null;
+            found.clear();
+            AnalysisMetrics.get().time(Stage.WALK, start);
         }
-        node = (ExplorerTreeNode) node.getParent();
-        return FileVisitResult.CONTINUE;
     }
 
-    private class TreeBuilderClassVisitor extends ClassVisitor {
-
-        public TreeBuilderClassVisitor() {
-            super(Opcodes.ASM4);
-        }
-
-        @Override
-        public void visit(final int version, final int access, final String name,
-                final String signature, final String superName, final String[] interfaces) {
-
-            className = name;
-            classPackage = "";
-            final int i = name.lastIndexOf('/');
-            if (i != -1) {
-                classPackage = className.substring(0, i);
-                className = className.substring(i + 1);
-            }
-
-            final ExplorerTreeNode n = new ExplorerTreeNode(className, NodeType.CLASS);
-            node.add(n);
-            node = n;
-            super.visit(version, access, name, signature, superName, interfaces);
-        }
-
-        @Override
-        public void visitSource(final String source, final String debug) {
-            if (source != null) {
-                for (Path path : project.getSourcePaths()) {
-                    path = path.resolve(classPackage).resolve(source);
-                    if (Files.exists(path)) {
-                        sourcePath = path;
-                        break;
-                    }
+    public void merge() throws IOException {
+        try {
+            for (final PendingClass p : pending) {
+                final ClassData c = get(p.future);
+                if (!streaming) {
+                    final long start = System.nanoTime();
+                    sink.fill(p.node, c, methods(c, p.file));
+                    AnalysisMetrics.get().time(Stage.TREE, start);
                 }
             }
-            node.setSource(sourcePath);
+        } finally {
+            pending.clear();
         }
+    }
 
-        @Override
-        public MethodVisitor visitMethod(final int access, final String name, final String desc,
-                final String signature, final String[] exceptions) {
+    public Map<Path, ExplorerTreeNode> getPackageNodes() {
+        return packages;
+    }
 
-            return new TreeBuilderMethodVisitor(access, name, desc, signature, exceptions);
-        }
+    public Map<Path, ExplorerTreeNode> getClassNodes() {
+        return classes;
+    }
 
-        @Override
-        public void visitEnd() {
-            node = (ExplorerTreeNode) node.getParent();
-            className = null;
-            classPackage = null;
-            sourcePath = null;
-        }
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 
+    private static ClassData get(final Future<ClassData> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
     }
 
-    private class TreeBuilderMethodVisitor extends MethodNode implements Opcodes {
+    private static String className(final Path file) {
+        final String name = file.getFileName().toString();
+        final int i = name.lastIndexOf('.');
+        return i == -1 ? name : name.substring(0, i);
+    }
 
-        private final DefUseAnalyzer analyzer = new DefUseAnalyzer();
-        private final DepthFirstDefUseChainSearch dfducs = new DepthFirstDefUseChainSearch();
+    private Methods methods(final ClassData c, final Path file) {
+        return new Methods(c.methods, analyzer.loader(file));
+    }
 
-        private int[] lines;
+    public interface Sink {
 
-        public TreeBuilderMethodVisitor(final int access, final String name, final String desc,
-                final String signature, final String[] exceptions) {
+        void add(ExplorerTreeNode parent, ExplorerTreeNode child);
 
-            super(access, name, desc, signature, exceptions);
+        void fill(ExplorerTreeNode node, ClassData c, Methods methods);
 
-            final NodeType type;
-            switch (access & (ACC_PUBLIC | ACC_PRIVATE | ACC_PROTECTED)) {
-            case ACC_PUBLIC:
-                type = NodeType.METHOD_PUBLIC;
-                break;
-            case ACC_PRIVATE:
-                type = NodeType.METHOD_PRIVATE;
-                break;
-            case ACC_PROTECTED:
-                type = NodeType.METHOD_PROTECTED;
-                break;
-            default:
-                type = NodeType.METHOD_DEFAULT;
-                break;
-            }
+    }
 
-            final ExplorerTreeNode n = new ExplorerTreeNode(name + desc, type);
-            n.setSource(sourcePath);
-            node.add(n);
-            node = n;
-        }
+    // the analysis and the rebuilt tree meet here, whichever comes last fills the node
+    private class PendingClass implements Callable<ClassData> {
 
-        @Override
-        public void visitEnd() {
-            lines = new int[instructions.size()];
-            for (int i = 0; i < lines.length; i++) {
-                if (instructions.get(i) instanceof LineNumberNode) {
-                    final LineNumberNode insn = (LineNumberNode) instructions.get(i);
-                    lines[instructions.indexOf(insn.start)] = insn.line;
-                }
-            }
-            int line = 1;
-            for (int i = 0; i < lines.length; i++) {
-                if (lines[i] == 0)
-                    lines[i] = line;
-                else
-                    line = lines[i];
-            }
+        private final Path file;
 
-            DefUseChain[] duas;
-            Variable[] vars;
-            try {
-                analyzer.analyze(className, this);
+        private Future<ClassData> future;
 
-                // find all definition-use chains
-                duas = dfducs.search(analyzer.getDefUseFrames(), analyzer.getVariables(),
-                        analyzer.getSuccessors(), analyzer.getPredecessors());
+        private ExplorerTreeNode node;
 
-                // only global definition-use chains
-                duas = DefUseChain.globals(duas, analyzer.getLeaders(), analyzer.getBasicBlocks());
+        private ClassData data;
 
-                vars = analyzer.getVariables();
-            } catch (final AnalyzerException ignore) {
-                duas = new DefUseChain[0];
-                vars = new Variable[0];
-            }
+        public PendingClass(final Path file) {
+            this.file = file;
+        }
 
-            for (final DefUseChain dua : duas) {
-                final Variable var = vars[dua.var];
-                final int def = lines[dua.def];
-                final int use = lines[dua.use];
-                String name;
-                if (var instanceof Field) {
-                    name = ((Field) var).name;
-                } else {
-                    try {
-                        name = varName(dua.def, ((Local) var).var);
-                    } catch (final Exception e) {
-                        name = var.toString();
+        @Override
+        public ClassData call() throws IOException {
+            final ReadBuffer buffer = ReadBuffer.get().read(file);
+            final ClassData c = analyzer.analyze(buffer.array(), buffer.length());
+            if (streaming) {
+                synchronized (this) {
+                    data = c;
+                    if (node == null) {
+                        return c;
                     }
                 }
-                final ExplorerTreeNode n = new ExplorerTreeNode(new DUA(def, use, name),
-                        NodeType.DEFUSE);
-                n.setSource(sourcePath);
-                node.add(n);
+                sink.fill(node, c, methods(c, file));
             }
-
-            node = (ExplorerTreeNode) node.getParent();
+            return c;
         }
 
-        private String varName(final int insn, final int index) {
-            for (final LocalVariableNode local : localVariables) {
-                if (local.index == index) {
-                    final int start = instructions.indexOf(local.start);
-                    final int end = instructions.indexOf(local.end);
-                    if (insn + 1 >= start && insn + 1 <= end) {
-                        return local.name;
-                    }
+        private void attach(final ExplorerTreeNode n) {
+            synchronized (this) {
+                node = n;
+                if (!streaming || data == null) {
+                    return;
                 }
             }
-            throw new RuntimeException("Variable not found");
+            sink.fill(n, data, methods(data, file));
         }
 
     }
@@ -0,0 +1,268 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.commons;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.usp.each.saeg.asm.defuse.viz.commons.PathFilter.Dir;
+
+public class ParallelWalker {
+
+    private static final int MAX_AHEAD = 1024;
+
+    private final ForkJoinPool pool;
+
+    private final PathMatcherChain include;
+
+    private final PathFilter filter;
+
+    public ParallelWalker(final ForkJoinPool pool, final PathMatcherChain include,
+            final PathFilter filter) {
+
+        this.pool = pool;
+
+        if (include == null) {
+            this.include = new PathMatcherChain(PathMatchers.ACCEPT_ALL);
+        } else {
+            this.include = include;
+        }
+
+        if (filter == null) {
+            this.filter = PathFilter.ACCEPT_ALL;
+        } else {
+            this.filter = filter;
+        }
+    }
+
+    // lists directories in parallel while they are replayed, in the order a sequential walk
+    // visits them, on the calling thread
+    public void walk(final Path start, final Listener listener, final Visitor visitor)
+            throws IOException {
+
+        final Walk walk = new Walk(listener);
+        final Listing root = new Listing(start, filter.root());
+        walk.schedule(root);
+        walk.replay(root, visitor);
+    }
+
+    private static String name(final Path path) {
+        // archive entries keep a trailing separator on directory names
+        final String name = path.getFileName().toString();
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private class Walk {
+
+        private final Listener listener;
+
+        // listings scanned or being scanned but not replayed yet, the scan stays this close
+        // to the replay so a large class path is never held in memory as a whole
+        private final AtomicInteger ahead = new AtomicInteger();
+
+        private final Queue<Listing> parked = new ConcurrentLinkedQueue<Listing>();
+
+        public Walk(final Listener listener) {
+            this.listener = listener;
+        }
+
+        private void schedule(final Listing listing) {
+            if (ahead.get() < MAX_AHEAD) {
+                start(listing);
+            } else {
+                parked.add(listing);
+                // the replay may have made room while this one was being parked
+                drain();
+            }
+        }
+
+        private void start(final Listing listing) {
+            if (listing.claim()) {
+                ahead.incrementAndGet();
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        scan(listing);
+                    }
+                });
+            }
+        }
+
+        private void drain() {
+            Listing listing;
+            while (ahead.get() < MAX_AHEAD && (listing = parked.poll()) != null) {
+                start(listing);
+            }
+        }
+
+        private void replay(final Listing listing, final Visitor visitor) throws IOException {
+            if (listing.claim()) {
+                // parked and not started, scanning it here is quicker than waiting for room
+                ahead.incrementAndGet();
+                scan(listing);
+            }
+            listing.await();
+            visitor.preVisitDirectory(listing.dir);
+            for (final Object entry : listing.entries) {
+                if (entry instanceof Listing) {
+                    replay((Listing) entry, visitor);
+                } else {
+                    visitor.visitFile((Path) entry);
+                }
+            }
+            visitor.postVisitDirectory(listing.dir);
+            // replayed subtrees are garbage, only listings ahead of the replay are kept
+            listing.entries.clear();
+            ahead.decrementAndGet();
+            drain();
+        }
+
+        private void scan(final Listing listing) {
+            final List<Listing> children = new ArrayList<Listing>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(listing.dir)) {
+                for (final Path child : stream) {
+                    final BasicFileAttributes attrs = Files.readAttributes(child,
+                            BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        final Dir d = filter.enter(listing.state, name(child));
+                        if (d != null) {
+                            final Listing l = new Listing(child, d);
+                            listing.entries.add(l);
+                            children.add(l);
+                        }
+                    } else if (include.matches(child.getFileName())
+                            && filter.accepts(listing.state, name(child))) {
+                        listing.entries.add(child);
+                        if (listener != null) {
+                            listener.fileFound(child);
+                        }
+                    }
+                }
+            } catch (final DirectoryIteratorException e) {
+                fail(listing, children, e.getCause());
+            } catch (final IOException e) {
+                fail(listing, children, e);
+            } catch (final RuntimeException e) {
+                // a listener or filter failing must not leave the replay waiting
+                fail(listing, children, new IOException(e));
+            } finally {
+                listing.done.countDown();
+            }
+            for (final Listing child : children) {
+                schedule(child);
+            }
+        }
+
+        private void fail(final Listing listing, final List<Listing> children,
+                final IOException e) {
+            listing.failure = e;
+            // subdirectories already listed are never scanned, release them too
+            for (final Listing child : children) {
+                if (child.claim()) {
+                    child.failure = e;
+                    child.done.countDown();
+                }
+            }
+            children.clear();
+        }
+
+    }
+
+    // entries of one directory in stream order, files as paths and subdirectories as listings
+    private static class Listing {
+
+        private final Path dir;
+
+        private final Dir state;
+
+        private final List<Object> entries = new ArrayList<Object>();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private IOException failure;
+
+        public Listing(final Path dir, final Dir state) {
+            this.dir = dir;
+            this.state = state;
+        }
+
+        // true for the one caller that gets to scan it
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private void await() throws IOException {
+            try {
+                done.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+    }
+
+    public interface Listener {
+
+        // called from the scanning threads, as soon as the file is listed
+        void fileFound(Path file);
+
+    }
+
+    public interface Visitor {
+
+        void preVisitDirectory(Path dir) throws IOException;
+
+        void visitFile(Path file) throws IOException;
+
+        void postVisitDirectory(Path dir) throws IOException;
+
+    }
+
+}
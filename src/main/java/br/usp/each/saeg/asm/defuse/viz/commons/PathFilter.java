@@ -0,0 +1,344 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class PathFilter {
+
+    public static final PathFilter ACCEPT_ALL = compile(Collections.<String> emptyList(),
+            Collections.<String> emptyList());
+
+    private static final String GLOB = "glob:";
+
+    private static final String REGEX = "regex:";
+
+    private static final String PACKAGE = "package:";
+
+    // versioned copies of the base classes in a multi-release jar, only the base is analyzed
+    private static final String VERSIONS = "META-INF/versions";
+
+    private final Patterns include;
+
+    private final Patterns exclude;
+
+    private final boolean acceptAll;
+
+    private PathFilter(final Patterns include, final Patterns exclude) {
+        this.include = include;
+        this.exclude = exclude;
+        acceptAll = include.isEmpty();
+    }
+
+    public static PathFilter compile(final Collection<String> includes,
+            final Collection<String> excludes) {
+        return new PathFilter(new Patterns(includes), new Patterns(excludes));
+    }
+
+    public static List<String> split(final String list) {
+        final List<String> result = new ArrayList<String>();
+        if (list == null) {
+            return result;
+        }
+        // commas inside a glob group such as {a,b} do not separate patterns
+        int depth = 0;
+        int from = 0;
+        for (int i = 0; i < list.length(); i++) {
+            final char c = list.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                add(result, list.substring(from, i));
+                from = i + 1;
+            }
+        }
+        add(result, list.substring(from));
+        return result;
+    }
+
+    private static void add(final List<String> result, final String pattern) {
+        final String trimmed = pattern.trim();
+        if (!trimmed.isEmpty()) {
+            result.add(trimmed);
+        }
+    }
+
+    public Dir root() {
+        return new Dir("", include.packages, acceptAll, exclude.packages);
+    }
+
+    // null when the directory is excluded, or when nothing under it can be included
+    public Dir enter(final Dir parent, final String name) {
+        final String path = parent.path.isEmpty() ? name : parent.path + '/' + name;
+        if (VERSIONS.equals(path)) {
+            return null;
+        }
+
+        final Node excluded = parent.excluded == null ? null : parent.excluded.get(name);
+        if (excluded != null && excluded.terminal) {
+            return null;
+        }
+        if (exclude.matches(path, name)) {
+            return null;
+        }
+
+        final Node included = parent.included == null ? null : parent.included.get(name);
+        final boolean under = parent.under || included != null && included.terminal;
+        if (!under && included == null && !include.hasPatterns()) {
+            // off every included package and no pattern could match deeper down
+            return null;
+        }
+        return new Dir(path, included, under, excluded);
+    }
+
+    public boolean accepts(final Dir dir, final String name) {
+        final String path = dir.path.isEmpty() ? name : dir.path + '/' + name;
+        if (exclude.matches(path, name)) {
+            return false;
+        }
+        return acceptAll || dir.under || include.matches(path, name);
+    }
+
+    public boolean accepts(final String path) {
+        Dir dir = root();
+        int from = 0;
+        int i;
+        while ((i = path.indexOf('/', from)) != -1) {
+            dir = enter(dir, path.substring(from, i));
+            if (dir == null) {
+                return false;
+            }
+            from = i + 1;
+        }
+        return accepts(dir, path.substring(from));
+    }
+
+    static String toRegex(final String glob) {
+        final StringBuilder sb = new StringBuilder();
+        boolean group = false;
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            switch (c) {
+            case '*':
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    i++;
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                        // **/ also matches no directory at all
+                        i++;
+                        sb.append("(?:.*/)?");
+                    } else {
+                        sb.append(".*");
+                    }
+                } else {
+                    sb.append("[^/]*");
+                }
+                break;
+            case '?':
+                sb.append("[^/]");
+                break;
+            case '/':
+                if (glob.startsWith("**", i + 1) && i + 3 == glob.length()) {
+                    // a trailing /** also matches the directory itself
+                    i += 2;
+                    sb.append("(?:/.*)?");
+                } else {
+                    sb.append('/');
+                }
+                break;
+            case '[':
+                final int end = glob.indexOf(']', i + 1);
+                if (end == -1) {
+                    sb.append("\\[");
+                    break;
+                }
+                sb.append('[');
+                int j = i + 1;
+                if (glob.charAt(j) == '!') {
+                    sb.append('^');
+                    j++;
+                }
+                for (; j < end; j++) {
+                    final char k = glob.charAt(j);
+                    if (k == '\\' || k == '[' || k == '&' || k == '^') {
+                        sb.append('\\');
+                    }
+                    sb.append(k);
+                }
+                sb.append(']');
+                i = end;
+                break;
+            case '{':
+                group = true;
+                sb.append("(?:");
+                break;
+            case '}':
+                if (group) {
+                    group = false;
+                    sb.append(')');
+                } else {
+                    sb.append("\\}");
+                }
+                break;
+            case ',':
+                sb.append(group ? "|" : ",");
+                break;
+            case '\\':
+                if (i + 1 < glob.length()) {
+                    sb.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                }
+                break;
+            default:
+                if ("$^.+()|".indexOf(c) != -1) {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static class Dir {
+
+        private final String path;
+
+        private final Node included;
+
+        private final boolean under;
+
+        private final Node excluded;
+
+        private Dir(final String path, final Node included, final boolean under,
+                final Node excluded) {
+            this.path = path;
+            this.included = included;
+            this.under = under;
+            this.excluded = excluded;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+    }
+
+    // one segment of a package name, terminal where a configured package ends
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<String, Node>();
+
+        private boolean terminal;
+
+        private Node get(final String name) {
+            return children.get(name);
+        }
+
+        private Node put(final String name) {
+            Node n = children.get(name);
+            if (n == null) {
+                n = new Node();
+                children.put(name, n);
+            }
+            return n;
+        }
+
+    }
+
+    // all patterns of one kind, folded into a package trie and two alternations
+    private static class Patterns {
+
+        private final Node packages;
+
+        private final Pattern paths;
+
+        private final Pattern names;
+
+        private Patterns(final Collection<String> patterns) {
+            Node root = null;
+            final StringBuilder paths = new StringBuilder();
+            final StringBuilder names = new StringBuilder();
+            for (final String pattern : patterns) {
+                if (pattern.startsWith(PACKAGE)) {
+                    if (root == null) {
+                        root = new Node();
+                    }
+                    Node n = root;
+                    for (final String segment : pattern.substring(PACKAGE.length()).split("\\.")) {
+                        n = n.put(segment);
+                    }
+                    n.terminal = true;
+                } else if (pattern.startsWith(REGEX)) {
+                    append(paths, pattern.substring(REGEX.length()));
+                } else {
+                    final String glob = pattern.startsWith(GLOB) ? pattern.substring(GLOB
+                            .length()) : pattern;
+                    // like .gitignore, a glob without a separator matches a name at any depth
+                    append(glob.indexOf('/') == -1 ? names : paths, toRegex(glob));
+                }
+            }
+            packages = root;
+            this.paths = compile(paths);
+            this.names = compile(names);
+        }
+
+        private static void append(final StringBuilder sb, final String regex) {
+            if (sb.length() != 0) {
+                sb.append('|');
+            }
+            sb.append("(?:").append(regex).append(')');
+        }
+
+        private static Pattern compile(final StringBuilder sb) {
+            return sb.length() == 0 ? null : Pattern.compile(sb.toString());
+        }
+
+        private boolean isEmpty() {
+            return packages == null && !hasPatterns();
+        }
+
+        private boolean hasPatterns() {
+            return paths != null || names != null;
+        }
+
+        private boolean matches(final String path, final String name) {
+            return names != null && names.matcher(name).matches() || paths != null
+                    && paths.matcher(path).matches();
+        }
+
+    }
+
+}
@@ -30,11 +30,23 @@
 package br.usp.each.saeg.asm.defuse.viz.swing;
 
 import java.awt.BorderLayout;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 
 public class ExplorerPanel extends JPanel {
@@ -43,15 +55,47 @@ public class ExplorerPanel extends JPanel {
 
     private final JTree tree;
 
+    private final ExplorerTreeModel model;
+
     private final ExplorerTreeNode root;
 
+    // lazy rows are analyzed here, never on the EDT
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "row-loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Set<ExplorerTreeNode> loading = new HashSet<ExplorerTreeNode>();
+
+    private final List<LoadListener> listeners = new ArrayList<LoadListener>();
+
     public ExplorerPanel(final ExplorerTreeNode root) {
         this.root = root;
 
-        tree = new JTree(root);
+        model = new ExplorerTreeModel(root);
+        tree = new JTree(model);
         tree.setRootVisible(true);
+        // fixed row heights let the tree keep no state for rows that are not visible
+        tree.setLargeModel(true);
+        tree.setRowHeight(Math.max(tree.getFontMetrics(tree.getFont()).getHeight(), 16) + 2);
         tree.getSelectionModel().setSelectionMode(TreeSelectionModel.SINGLE_TREE_SELECTION);
-        tree.setCellRenderer(new TreeCellRenderer());
+        tree.setCellRenderer(new TreeCellRenderer(loading));
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+
+            @Override
+            public void treeWillExpand(final TreeExpansionEvent event) {
+                load((ExplorerTreeNode) event.getPath().getLastPathComponent());
+            }
+
+            @Override
+            public void treeWillCollapse(final TreeExpansionEvent event) {
+            }
+
+        });
 
         setLayout(new BorderLayout());
         add(new JScrollPane(tree));
@@ -61,6 +105,10 @@ public class ExplorerPanel extends JPanel {
         tree.addTreeSelectionListener(tsl);
     }
 
+    public void addLoadListener(final LoadListener listener) {
+        listeners.add(listener);
+    }
+
     public ExplorerTreeNode getLastSelectedPathComponent() {
         return (ExplorerTreeNode) tree.getLastSelectedPathComponent();
     }
@@ -69,4 +117,96 @@ public class ExplorerPanel extends JPanel {
         return root;
     }
 
+    public ExplorerTreeModel getModel() {
+        return model;
+    }
+
+    public void load(final ExplorerTreeNode node) {
+        if (node == null || node.isLoaded() || !loading.add(node)) {
+            return;
+        }
+        model.nodeChanged(node);
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                Runnable install = null;
+                try {
+                    install = node.load();
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+                final Runnable rows = install;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        loading.remove(node);
+                        if (!attached(node)) {
+                            // the class was patched or deleted meanwhile
+                            return;
+                        }
+                        if (rows != null) {
+                            rows.run();
+                        }
+                        inserted(node);
+                        for (final LoadListener listener : listeners) {
+                            listener.nodeLoaded(node);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public void dispose() {
+        loader.shutdownNow();
+    }
+
+    private void inserted(final ExplorerTreeNode node) {
+        final int[] childIndices = new int[model.getChildCount(node)];
+        for (int i = 0; i < childIndices.length; i++) {
+            childIndices[i] = i;
+        }
+        if (childIndices.length == 0) {
+            model.nodeStructureChanged(node);
+        } else {
+            model.nodeChanged(node);
+            model.nodesWereInserted(node, childIndices);
+        }
+    }
+
+    private boolean attached(final ExplorerTreeNode node) {
+        ExplorerTreeNode child = node;
+        while (child != root) {
+            final ExplorerTreeNode parent = (ExplorerTreeNode) child.getParent();
+            if (parent == null) {
+                return false;
+            }
+            final int index = model.getIndexOfChild(parent, child);
+            if (index < 0 || index >= model.getChildCount(parent)
+                    || !child.equals(model.getChild(parent, index))) {
+                return false;
+            }
+            child = parent;
+        }
+        return true;
+    }
+
+    public void expand(final ExplorerTreeNode node) {
+        tree.expandPath(new TreePath(node.getPath()));
+    }
+
+    public void select(final ExplorerTreeNode node) {
+        final TreePath path = new TreePath(node.getPath());
+        tree.expandPath(path.getParentPath());
+        tree.setSelectionPath(path);
+        tree.scrollPathToVisible(path);
+    }
+
+    public interface LoadListener {
+
+        // on the EDT, once the rows of a lazy node are in the tree
+        void nodeLoaded(ExplorerTreeNode node);
+
+    }
+
 }
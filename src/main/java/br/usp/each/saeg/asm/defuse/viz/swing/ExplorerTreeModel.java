@@ -0,0 +1,122 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.swing;
+
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+
+import br.usp.each.saeg.asm.defuse.viz.swing.ExplorerTreeNode.RowNode;
+
+public class ExplorerTreeModel extends DefaultTreeModel {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExplorerTreeModel(final ExplorerTreeNode root) {
+        super(root);
+    }
+
+    @Override
+    public Object getChild(final Object parent, final int index) {
+        final ExplorerTreeNode node = (ExplorerTreeNode) parent;
+        final int count = node.getChildCount();
+        if (index < count) {
+            return node.getChildAt(index);
+        }
+        return node.getRowAt(index - count);
+    }
+
+    @Override
+    public int getChildCount(final Object parent) {
+        final ExplorerTreeNode node = (ExplorerTreeNode) parent;
+        return node.getChildCount() + node.getRowCount();
+    }
+
+    @Override
+    public int getIndexOfChild(final Object parent, final Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        }
+        if (child instanceof RowNode) {
+            final RowNode row = (RowNode) child;
+            if (!parent.equals(row.getParent())) {
+                return -1;
+            }
+            return ((ExplorerTreeNode) parent).getChildCount() + row.getIndex();
+        }
+        return super.getIndexOfChild(parent, child);
+    }
+
+    @Override
+    public void nodeChanged(final TreeNode node) {
+        if (listenerList != null && node != null) {
+            final TreeNode parent = node.getParent();
+            if (parent != null) {
+                final int index = getIndexOfChild(parent, node);
+                if (index != -1) {
+                    nodesChanged(parent, new int[] { index });
+                }
+            } else if (node == getRoot()) {
+                nodesChanged(node, null);
+            }
+        }
+    }
+
+    @Override
+    public void nodesChanged(final TreeNode node, final int[] childIndices) {
+        if (node != null) {
+            if (childIndices != null) {
+                if (childIndices.length > 0) {
+                    fireTreeNodesChanged(this, getPathToRoot(node), childIndices,
+                            children(node, childIndices));
+                }
+            } else if (node == getRoot()) {
+                fireTreeNodesChanged(this, getPathToRoot(node), null, null);
+            }
+        }
+    }
+
+    @Override
+    public void nodesWereInserted(final TreeNode node, final int[] childIndices) {
+        if (listenerList != null && node != null && childIndices != null
+                && childIndices.length > 0) {
+            fireTreeNodesInserted(this, getPathToRoot(node), childIndices,
+                    children(node, childIndices));
+        }
+    }
+
+    private Object[] children(final TreeNode node, final int[] childIndices) {
+        final Object[] children = new Object[childIndices.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = getChild(node, childIndices[i]);
+        }
+        return children;
+    }
+
+}
@@ -29,6 +29,7 @@
  */
 package br.usp.each.saeg.asm.defuse.viz.swing;
 
+import java.io.IOException;
 import java.nio.file.Path;
 
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -41,6 +42,8 @@ public class ExplorerTreeNode extends DefaultMutableTreeNode {
 
     private Path source;
 
+    private Rows rows;
+
     public ExplorerTreeNode(final Object obj, final NodeType type) {
         super(obj);
         this.type = type;
@@ -58,4 +61,112 @@ public class ExplorerTreeNode extends DefaultMutableTreeNode {
         return source;
     }
 
+    public boolean isLoaded() {
+        return true;
+    }
+
+    // runs off the EDT, the returned task installs the rows and must run on the EDT
+    public Runnable load() throws IOException {
+        return null;
+    }
+
+    public void setRows(final Rows rows) {
+        this.rows = rows;
+    }
+
+    public Rows getRows() {
+        return rows;
+    }
+
+    public int getRowCount() {
+        final Rows r = getRows();
+        return r == null ? 0 : r.size();
+    }
+
+    public ExplorerTreeNode getRowAt(final int index) {
+        if (index < 0 || index >= getRowCount()) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return new RowNode(this, getRows(), index);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return isLoaded() && getRowCount() == 0 && super.isLeaf();
+    }
+
+    public interface Rows {
+
+        int size();
+
+        Object get(int index);
+
+        NodeType getType(int index);
+
+        Rows getRows(int index);
+
+        boolean isLoaded(int index);
+
+        Runnable load(int index) throws IOException;
+
+    }
+
+    static class RowNode extends ExplorerTreeNode {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Rows owner;
+
+        private final int index;
+
+        public RowNode(final ExplorerTreeNode parent, final Rows owner, final int index) {
+            super(owner.get(index), owner.getType(index));
+            this.owner = owner;
+            this.index = index;
+            setParent(parent);
+            setSource(parent.getSource());
+            setAllowsChildren(false);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public boolean isLoaded() {
+            return owner.isLoaded(index);
+        }
+
+        @Override
+        public Runnable load() throws IOException {
+            return owner.load(index);
+        }
+
+        @Override
+        public Rows getRows() {
+            // asked every time, rows of a lazy row only exist once it is loaded
+            return owner.getRows(index);
+        }
+
+        @Override
+        public void setRows(final Rows rows) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof RowNode)) {
+                return false;
+            }
+            final RowNode other = (RowNode) obj;
+            return index == other.index && owner == other.owner;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + index;
+        }
+
+    }
+
 }
@@ -0,0 +1,140 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.swing;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+
+import org.fife.ui.rtextarea.RTextArea;
+
+// Paints every highlighted line through one highlight, only the visible lines are touched
+class LineHighlightPainter implements Highlighter.HighlightPainter {
+
+    private int[] lines = new int[0];
+
+    private Color[] colors = new Color[0];
+
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(colors, 0, size, null);
+        size = 0;
+    }
+
+    public void put(final int line, final Color color) {
+        final int i = Arrays.binarySearch(lines, 0, size, line);
+        if (i >= 0) {
+            colors[i] = color;
+            return;
+        }
+        final int at = -i - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(lines, at, lines, at + 1, size - at);
+        System.arraycopy(colors, at, colors, at + 1, size - at);
+        lines[at] = line;
+        colors[at] = color;
+        size++;
+    }
+
+    public void putAll(final Map<Integer, Color> entries) {
+        if (size != 0) {
+            for (final Map.Entry<Integer, Color> entry : entries.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        ensureCapacity(entries.size());
+        final long[] order = new long[entries.size()];
+        final Color[] values = new Color[entries.size()];
+        int n = 0;
+        for (final Map.Entry<Integer, Color> entry : entries.entrySet()) {
+            // line in the high bits, entry index in the low bits
+            order[n] = (long) entry.getKey() << 32 | n;
+            values[n++] = entry.getValue();
+        }
+        Arrays.sort(order);
+        for (int i = 0; i < n; i++) {
+            lines[i] = (int) (order[i] >> 32);
+            colors[i] = values[(int) order[i]];
+        }
+        size = n;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > lines.length) {
+            final int length = Math.max(capacity, lines.length * 2);
+            lines = Arrays.copyOf(lines, length);
+            colors = Arrays.copyOf(colors, length);
+        }
+    }
+
+    @Override
+    public void paint(final Graphics g, final int p0, final int p1, final Shape bounds,
+            final JTextComponent c) {
+
+        if (size == 0) {
+            return;
+        }
+        final RTextArea textArea = (RTextArea) c;
+        final Rectangle clip = g.getClipBounds();
+        final Rectangle area = bounds.getBounds();
+        final int lineHeight = textArea.getLineHeight();
+        try {
+            final int first = textArea.getLineOfOffset(textArea.viewToModel(new Point(0,
+                    clip.y))) + 1;
+            final int last = textArea.getLineOfOffset(textArea.viewToModel(new Point(0,
+                    clip.y + clip.height))) + 1;
+            int i = Arrays.binarySearch(lines, 0, size, first);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            final int count = textArea.getLineCount();
+            for (; i < size && lines[i] <= last && lines[i] <= count; i++) {
+                g.setColor(colors[i]);
+                g.fillRect(area.x, textArea.yForLine(lines[i] - 1), area.width, lineHeight);
+            }
+        } catch (final BadLocationException ignore) {
+        }
+    }
+
+}
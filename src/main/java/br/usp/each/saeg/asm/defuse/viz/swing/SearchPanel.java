@@ -0,0 +1,118 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.swing;
+
+import java.awt.BorderLayout;
+import java.util.List;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+
+public class SearchPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private final JTextField field;
+
+    private final JList<Object> list;
+
+    public SearchPanel() {
+        field = new JTextField();
+        list = new JList<Object>();
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // avoids measuring every result to size the list
+        list.setPrototypeCellValue("MMMMMMMMMMMMMMMMMMMMMMMMMMMMMMMM");
+
+        setLayout(new BorderLayout());
+        add(field, BorderLayout.NORTH);
+        add(new JScrollPane(list));
+    }
+
+    public void addSearchListener(final SearchListener listener) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+
+            @Override
+            public void insertUpdate(final DocumentEvent e) {
+                listener.searchChanged(field.getText());
+            }
+
+            @Override
+            public void removeUpdate(final DocumentEvent e) {
+                listener.searchChanged(field.getText());
+            }
+
+            @Override
+            public void changedUpdate(final DocumentEvent e) {
+            }
+
+        });
+        list.addListSelectionListener(new ListSelectionListener() {
+
+            @Override
+            public void valueChanged(final ListSelectionEvent e) {
+                final Object value = list.getSelectedValue();
+                if (!e.getValueIsAdjusting() && value != null) {
+                    listener.resultSelected(value);
+                }
+            }
+
+        });
+    }
+
+    public String getText() {
+        return field.getText();
+    }
+
+    public void setResults(final List<?> values) {
+        // a fresh model notifies the list once instead of once per element
+        final DefaultListModel<Object> results = new DefaultListModel<Object>();
+        for (final Object value : values) {
+            results.addElement(value);
+        }
+        list.setModel(results);
+    }
+
+    public interface SearchListener {
+
+        void searchChanged(String text);
+
+        void resultSelected(Object value);
+
+    }
+
+}
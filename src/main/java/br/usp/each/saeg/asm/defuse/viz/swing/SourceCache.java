@@ -0,0 +1,125 @@
+/**
+ * asm-defuse-viz: visualize definition-use-chains
+ * Copyright (c) 2014 Roberto Araujo (roberto.andrioli@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package br.usp.each.saeg.asm.defuse.viz.swing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.BadLocationException;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+
+public class SourceCache {
+
+    public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+    // element, positions and token bookkeeping the document keeps for every line
+    private static final long LINE_WEIGHT = 256;
+
+    // access ordered, the eldest entry is the least recently used one
+    private final Map<Path, Entry> entries = new LinkedHashMap<Path, Entry>(16, 0.75f, true);
+
+    private final long budget;
+
+    private long size;
+
+    public SourceCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    public SourceCache(final long budget) {
+        this.budget = budget;
+    }
+
+    public RSyntaxDocument get(final Path path) throws IOException {
+        final long modified = Files.getLastModifiedTime(path).toMillis();
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if (entry != null && entry.modified == modified) {
+                return entry.document;
+            }
+        }
+        // not the thread's read buffer, it would keep the largest source around for good
+        final String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        final RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JAVA);
+        try {
+            document.insertString(0, text, null);
+        } catch (final BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+        final int lines = document.getDefaultRootElement().getElementCount();
+        put(path, new Entry(modified, document, text.length() * 2L + lines * LINE_WEIGHT));
+        return document;
+    }
+
+    public synchronized void invalidate(final Path path) {
+        final Entry entry = entries.remove(path);
+        if (entry != null) {
+            size -= entry.weight;
+        }
+    }
+
+    private synchronized void put(final Path path, final Entry entry) {
+        final Entry old = entries.put(path, entry);
+        if (old != null) {
+            size -= old.weight;
+        }
+        size += entry.weight;
+        // the newest entry stays even when it is larger than the whole budget
+        final Iterator<Entry> it = entries.values().iterator();
+        while (size > budget && entries.size() > 1) {
+            size -= it.next().weight;
+            it.remove();
+        }
+    }
+
+    private static class Entry {
+
+        private final long modified;
+
+        private final RSyntaxDocument document;
+
+        private final long weight;
+
+        public Entry(final long modified, final RSyntaxDocument document, final long weight) {
+            this.modified = modified;
+            this.document = document;
+            this.weight = weight;
+        }
+
+    }
+
+}
@@ -31,13 +31,16 @@ package br.usp.each.saeg.asm.defuse.viz.swing;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.util.LinkedList;
-import java.util.List;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Map;
 
 import javax.swing.JPanel;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Highlighter;
 
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rtextarea.RTextScrollPane;
@@ -52,7 +55,18 @@ public class SourcePanel extends JPanel {
 
     public static final Color YELLOW = new Color(250, 245, 30);
 
-    private final List<Object> highlights = new LinkedList<>();
+    private static final Color[] HEAT = new Color[16];
+
+    static {
+        for (int i = 0; i < HEAT.length; i++) {
+            final float t = (float) i / (HEAT.length - 1);
+            HEAT[i] = new Color(mix(YELLOW.getRed(), ORANGE_DARK.getRed(), t), mix(
+                    YELLOW.getGreen(), ORANGE_DARK.getGreen(), t), mix(YELLOW.getBlue(),
+                    ORANGE_DARK.getBlue(), t));
+        }
+    }
+
+    private final LineHighlightPainter highlights = new LineHighlightPainter();
 
     private final RSyntaxTextArea textArea;
 
@@ -65,6 +79,14 @@ public class SourcePanel extends JPanel {
         textArea.setAutoscrolls(true);
         textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
 
+        try {
+            // the painter ignores offsets and draws its lines wherever they are visible
+            final Highlighter highlighter = textArea.getHighlighter();
+            highlighter.addHighlight(0, 0, highlights);
+        } catch (final BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+
         scrollPane = new RTextScrollPane(textArea, true);
         scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
         scrollPane.setIconRowHeaderEnabled(true);
@@ -78,15 +100,65 @@ public class SourcePanel extends JPanel {
         textArea.setCaretPosition(0);
     }
 
+    public void setDocument(final RSyntaxDocument document) {
+        clearHighlights();
+        textArea.setDocument(document);
+        textArea.setCaretPosition(0);
+    }
+
+    public void addLineListener(final LineListener listener) {
+        textArea.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(final MouseEvent e) {
+                if (e.getButton() != MouseEvent.BUTTON1) {
+                    return;
+                }
+                final int offset = textArea.viewToModel(e.getPoint());
+                try {
+                    listener.lineClicked(e, textArea.getLineOfOffset(offset) + 1);
+                } catch (final BadLocationException ignore) {
+                }
+            }
+        });
+    }
+
     public void highlightLine(final int line, final Color color) throws BadLocationException {
-        highlights.add(textArea.addLineHighlight(line - 1, color));
+        if (line < 1 || line > textArea.getLineCount()) {
+            throw new BadLocationException("No such line", line);
+        }
+        highlights.put(line, color);
+        textArea.repaint();
+    }
+
+    public void highlightLines(final Map<Integer, Color> lines) {
+        highlights.putAll(lines);
+        textArea.repaint();
+    }
+
+    public static Color heat(final int count, final int max) {
+        if (max <= 1) {
+            return HEAT[HEAT.length - 1];
+        }
+        // logarithmic scale, a few very hot lines should not wash out the rest
+        final double t = Math.log(count) / Math.log(max);
+        return HEAT[(int) Math.round(t * (HEAT.length - 1))];
+    }
+
+    private static int mix(final int from, final int to, final float t) {
+        return Math.round(from + (to - from) * t);
     }
 
     public void clearHighlights() {
-        for (final Object o : highlights) {
-            textArea.removeLineHighlight(o);
+        if (highlights.size() != 0) {
+            highlights.clear();
+            textArea.repaint();
         }
-        highlights.clear();
+    }
+
+    public interface LineListener {
+
+        void lineClicked(MouseEvent e, int line);
+
     }
 
 }
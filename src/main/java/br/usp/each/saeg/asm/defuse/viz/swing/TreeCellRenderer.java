@@ -30,6 +30,8 @@
 package br.usp.each.saeg.asm.defuse.viz.swing;
 
 import java.awt.Component;
+import java.util.Collections;
+import java.util.Set;
 
 import javax.swing.JTree;
 import javax.swing.tree.DefaultTreeCellRenderer;
@@ -38,6 +40,16 @@ public class TreeCellRenderer extends DefaultTreeCellRenderer {
 
     private static final long serialVersionUID = 1L;
 
+    private final Set<ExplorerTreeNode> loading;
+
+    public TreeCellRenderer() {
+        this(Collections.<ExplorerTreeNode> emptySet());
+    }
+
+    public TreeCellRenderer(final Set<ExplorerTreeNode> loading) {
+        this.loading = loading;
+    }
+
     @Override
     public Component getTreeCellRendererComponent(final JTree tree, final Object value,
             final boolean sel, final boolean expanded, final boolean leaf, final int row,
@@ -45,6 +57,9 @@ public class TreeCellRenderer extends DefaultTreeCellRenderer {
 
         super.getTreeCellRendererComponent(tree, value, sel, expanded, leaf, row, hasFocus);
         setIcon(((ExplorerTreeNode) value).getType().getIcon());
+        if (loading.contains(value)) {
+            setText(getText() + " (loading...)");
+        }
         return this;
     }
 